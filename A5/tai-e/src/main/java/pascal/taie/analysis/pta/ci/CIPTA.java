@@ -27,6 +27,10 @@ import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
+
+import java.util.List;
 
 /**
  * Context-insensitive pointer analysis.
@@ -41,11 +45,47 @@ public class CIPTA extends ProgramAnalysis {
 
     @Override
     public PointerAnalysisResult analyze() {
-        HeapModel heapModel = new AllocationSiteBasedModel(getOptions());
-        Solver solver = new Solver(heapModel);
-        solver.solve();
-        CIPTAResult result = solver.getResult();
-        new ResultProcessor(getOptions()).process(result);
+        AnalysisOptions options = getOptions();
+        HeapModel heapModel = new AllocationSiteBasedModel(options);
+        String solverKind = options.getString("solver");
+        CIPTAResult result;
+        if (solverKind == null || solverKind.equals("worklist")
+                || solverKind.equals("wave")) {
+            Solver solver = new Solver(options, heapModel);
+            solver.solve();
+            result = solver.getResult();
+        } else if (solverKind.equals("parallel")) {
+            checkParallelOptions(options);
+            ParallelSolver solver = new ParallelSolver(heapModel, getThreads(options),
+                    options.getBooleanOrDefault("type-filter", false),
+                    options.getBooleanOrDefault("prune-primitives", false));
+            solver.solve();
+            result = solver.getResult();
+        } else {
+            throw new ConfigException("Unknown pointer analysis solver: " + solverKind);
+        }
+        new ResultProcessor(options).process(result);
         return result;
     }
+
+    /**
+     * Rejects the options which are not supported by parallel solver.
+     */
+    private static void checkParallelOptions(AnalysisOptions options) {
+        for (String option : List.of("collapse-cycles", "substitute-vars")) {
+            if (options.getBooleanOrDefault(option, false)) {
+                throw new ConfigException("Option " + option +
+                        " is not supported by parallel solver");
+            }
+        }
+    }
+
+    /**
+     * @return the number of threads used by parallel solver. If option
+     * "threads" is not given or non-positive, then uses all available processors.
+     */
+    private static int getThreads(AnalysisOptions options) {
+        int threads = options.get("threads") != null ? options.getInt("threads") : 0;
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
 }
@@ -25,6 +25,7 @@ package pascal.taie.analysis.pta.ci;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.callgraph.DispatchCache;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.core.heap.Obj;
 import pascal.taie.ir.exp.Var;
@@ -49,6 +50,8 @@ class CIPTAResult implements PointerAnalysisResult {
 
     private final CallGraph<Invoke, JMethod> callGraph;
 
+    private final DispatchCache dispatchCache;
+
     /**
      * Points-to sets of field expressions, e.g., v.f.
      */
@@ -57,9 +60,11 @@ class CIPTAResult implements PointerAnalysisResult {
     private Set<Obj> objects;
 
     CIPTAResult(PointerFlowGraph pointerFlowGraph,
-                CallGraph<Invoke, JMethod> callGraph) {
+                CallGraph<Invoke, JMethod> callGraph,
+                DispatchCache dispatchCache) {
         this.pointerFlowGraph = pointerFlowGraph;
         this.callGraph = callGraph;
+        this.dispatchCache = dispatchCache;
     }
 
     @Override
@@ -84,7 +89,8 @@ class CIPTAResult implements PointerAnalysisResult {
 
     @Override
     public Set<Obj> getPointsToSet(Var var) {
-        return pointerFlowGraph.getVarPtr(var)
+        // substituted variables share the points-to set of their representatives
+        return pointerFlowGraph.getRepresentative(pointerFlowGraph.getVarPtr(var))
                 .getPointsToSet()
                 .getObjects();
     }
@@ -123,4 +129,8 @@ class CIPTAResult implements PointerAnalysisResult {
     PointerFlowGraph getPointerFlowGraph() {
         return pointerFlowGraph;
     }
+
+    DispatchCache getDispatchCache() {
+        return dispatchCache;
+    }
 }
@@ -0,0 +1,436 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.CallGraphs;
+import pascal.taie.analysis.graph.callgraph.DefaultCallGraph;
+import pascal.taie.analysis.graph.callgraph.DispatchCache;
+import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.proginfo.FieldRef;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StmtVisitor;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.PrimitiveType;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.AnalysisException;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Multi-threaded variant of {@link Solver}.
+ * <p>
+ * Each work-list entry is a fork-join task, so that the entries are
+ * distributed over the work-stealing queues of a {@link ForkJoinPool}, and
+ * the analysis terminates when the pool becomes quiescent.
+ * The points-to sets and PFG are thread-safe, and each object is added
+ * to a points-to set by exactly one thread, which then propagates it to
+ * the successors. The call graph (together with the construction of IR
+ * and heap objects for newly reachable methods) is guarded by one lock.
+ * <p>
+ * As pointer analysis computes the least fixed point of its constraints,
+ * the result is identical to the one of the sequential solver.
+ */
+class ParallelSolver {
+
+    private static final Logger logger = LogManager.getLogger(ParallelSolver.class);
+
+    private final HeapModel heapModel;
+
+    private final int nThreads;
+
+    /**
+     * Filters propagated objects by the types of target pointers,
+     * or null if types are not filtered.
+     */
+    private final TypeFilter typeFilter;
+
+    /**
+     * Whether pointers of primitive types are not created at all,
+     * as they never point to any object.
+     */
+    private final boolean prunePrimitives;
+
+    private DefaultCallGraph callGraph;
+
+    /**
+     * Method dispatch caches its results in the class hierarchy,
+     * which is not thread-safe, thus the missed resolutions are
+     * guarded by a lock.
+     */
+    private final DispatchCache dispatchCache = new DispatchCache() {
+        @Override
+        protected JMethod resolve(Type type, Invoke callSite) {
+            synchronized (World.get().getClassHierarchy()) {
+                return super.resolve(type, callSite);
+            }
+        }
+    };
+
+    private PointerFlowGraph pointerFlowGraph;
+
+    private StmtProcessor stmtProcessor;
+
+    private ForkJoinPool pool;
+
+    /**
+     * The first exception thrown by any propagation task.
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    ParallelSolver(HeapModel heapModel, int nThreads,
+                   boolean filterTypes, boolean prunePrimitives) {
+        this.heapModel = heapModel;
+        this.nThreads = nThreads;
+        this.typeFilter = filterTypes ? new TypeFilter() : null;
+        this.prunePrimitives = prunePrimitives;
+    }
+
+    /**
+     * Runs pointer analysis algorithm.
+     */
+    void solve() {
+        logger.info("Solving pointer analysis with {} threads", nThreads);
+        pool = new ForkJoinPool(nThreads);
+        try {
+            initialize();
+            pool.awaitQuiescence(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw new AnalysisException("Parallel pointer analysis failed",
+                    failure.get());
+        }
+        pointerFlowGraph.freeze();
+    }
+
+    /**
+     * Initializes pointer analysis.
+     */
+    private void initialize() {
+        pointerFlowGraph = new PointerFlowGraph(true);
+        callGraph = new DefaultCallGraph();
+        stmtProcessor = new StmtProcessor();
+        // initialize main method
+        JMethod main = World.get().getMainMethod();
+        synchronized (callGraph) {
+            callGraph.addEntryMethod(main);
+            addReachable(main);
+        }
+    }
+
+    /**
+     * Processes new reachable method. Must be called with
+     * the lock of call graph held.
+     */
+    private void addReachable(JMethod method) {
+        if (callGraph.addReachableMethod(method)) {
+            for (Stmt stmt : method.getIR().getStmts()) {
+                stmt.accept(stmtProcessor);
+            }
+        }
+    }
+
+    /**
+     * Processes statements in new reachable methods.
+     */
+    private class StmtProcessor implements StmtVisitor<Void> {
+
+        @Override
+        public Void visit(New stmt) {
+            addEntry(pointerFlowGraph.getVarPtr(stmt.getLValue()),
+                    new PointsToSet(heapModel.getObj(stmt)));
+            return StmtVisitor.super.visit(stmt);
+        }
+
+        @Override
+        public Void visit(Copy stmt) {
+            // both sides of a copy are either primitive or not
+            if (!isPruned(stmt.getRValue()) || !isPruned(stmt.getLValue())) {
+                addPFGEdge(pointerFlowGraph.getVarPtr(stmt.getRValue()),
+                        pointerFlowGraph.getVarPtr(stmt.getLValue()));
+            }
+            return StmtVisitor.super.visit(stmt);
+        }
+
+        @Override
+        public Void visit(StoreField stmt) {
+            if (stmt.isStatic() && !isPruned(stmt.getRValue())) {
+                addPFGEdge(pointerFlowGraph.getVarPtr(stmt.getRValue()),
+                        pointerFlowGraph.getStaticField(
+                                resolveField(stmt.getLValue().getFieldRef())));
+            }
+            return StmtVisitor.super.visit(stmt);
+        }
+
+        @Override
+        public Void visit(LoadField stmt) {
+            if (stmt.isStatic() && !isPruned(stmt.getLValue())) {
+                addPFGEdge(pointerFlowGraph.getStaticField(
+                                resolveField(stmt.getRValue().getFieldRef())),
+                        pointerFlowGraph.getVarPtr(stmt.getLValue()));
+            }
+            return StmtVisitor.super.visit(stmt);
+        }
+
+        @Override
+        public Void visit(Invoke stmt) {
+            if (stmt.isStatic()) {
+                processCallEdge(stmt, resolveCallee(null, stmt));
+            }
+            return StmtVisitor.super.visit(stmt);
+        }
+    }
+
+    /**
+     * Adds an entry to the work list, i.e., schedules a task which
+     * propagates pointsToSet to pointer.
+     */
+    private void addEntry(Pointer pointer, PointsToSet pointsToSet) {
+        if (typeFilter != null) {
+            pointsToSet = typeFilter.filter(pointsToSet, pointer);
+            if (pointsToSet.isEmpty()) {
+                return;
+            }
+        }
+        PropagateTask task = new PropagateTask(pointer, pointsToSet);
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.fork();
+        } else {
+            pool.execute(task);
+        }
+    }
+
+    /**
+     * Adds an edge "source -> target" to the PFG.
+     */
+    private void addPFGEdge(Pointer source, Pointer target) {
+        // the edge is inserted before reading pts(source), and propagate()
+        // updates pts(source) before reading its successors, thus every
+        // object of source is propagated along the edge by at least one thread
+        if (pointerFlowGraph.addEdge(source, target)) {
+            if (!source.getPointsToSet().isEmpty()) {
+                addEntry(target, source.getPointsToSet());
+            }
+        }
+    }
+
+    /**
+     * Work-list entry: propagates a points-to set to a pointer.
+     */
+    private class PropagateTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Pointer pointer;
+
+        private final PointsToSet pointsToSet;
+
+        private PropagateTask(Pointer pointer, PointsToSet pointsToSet) {
+            this.pointer = pointer;
+            this.pointsToSet = pointsToSet;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                PointsToSet deltaSet = propagate(pointer, pointsToSet);
+                if (!deltaSet.isEmpty() && pointer instanceof VarPtr varPtr) {
+                    processVar(varPtr.getVar(), deltaSet);
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    /**
+     * Adds pointsToSet to pt(pointer) and propagates the objects which are
+     * newly added by this thread to the PFG successors of pointer.
+     *
+     * @return the objects which are newly added by this thread.
+     */
+    private PointsToSet propagate(Pointer pointer, PointsToSet pointsToSet) {
+        PointsToSet deltaSet = new PointsToSet();
+        for (Obj obj : pointsToSet) {
+            if (pointer.getPointsToSet().addObject(obj)) {
+                deltaSet.addObject(obj);
+            }
+        }
+        if (!deltaSet.isEmpty()) {
+            for (Pointer succ : pointerFlowGraph.getSuccsOf(pointer)) {
+                addEntry(succ, deltaSet);
+            }
+        }
+        return deltaSet;
+    }
+
+    /**
+     * @return whether the pointer of given variable is pruned, i.e.,
+     * primitive pointers are pruned and the variable is primitive.
+     * The pruned variable is recorded in the PFG.
+     */
+    private boolean isPruned(Var var) {
+        if (prunePrimitives && var.getType() instanceof PrimitiveType) {
+            pointerFlowGraph.addPrunedVar(var);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Processes the statements on var for the new objects of var.
+     */
+    private void processVar(Var var, PointsToSet deltaSet) {
+        for (Obj obj : deltaSet) {
+            // x.f = y
+            for (StoreField storeField : var.getStoreFields()) {
+                if (isPruned(storeField.getRValue())) {
+                    continue;
+                }
+                addPFGEdge(pointerFlowGraph.getVarPtr(storeField.getRValue()),
+                        pointerFlowGraph.getInstanceField(obj,
+                                resolveField(storeField.getLValue().getFieldRef())));
+            }
+            // y = x.f
+            for (LoadField loadField : var.getLoadFields()) {
+                if (isPruned(loadField.getLValue())) {
+                    continue;
+                }
+                addPFGEdge(pointerFlowGraph.getInstanceField(obj,
+                                resolveField(loadField.getRValue().getFieldRef())),
+                        pointerFlowGraph.getVarPtr(loadField.getLValue()));
+            }
+            // x[i] = y
+            for (StoreArray storeArray : var.getStoreArrays()) {
+                if (isPruned(storeArray.getRValue())) {
+                    continue;
+                }
+                addPFGEdge(pointerFlowGraph.getVarPtr(storeArray.getRValue()),
+                        pointerFlowGraph.getArrayIndex(obj));
+            }
+            // y = x[i]
+            for (LoadArray loadArray : var.getLoadArrays()) {
+                if (isPruned(loadArray.getLValue())) {
+                    continue;
+                }
+                addPFGEdge(pointerFlowGraph.getArrayIndex(obj),
+                        pointerFlowGraph.getVarPtr(loadArray.getLValue()));
+            }
+            processCall(var, obj);
+        }
+    }
+
+    /**
+     * Processes instance calls when points-to set of the receiver variable changes.
+     *
+     * @param var  the variable that holds receiver objects
+     * @param recv a new discovered object pointed by the variable.
+     */
+    private void processCall(Var var, Obj recv) {
+        for (Invoke callSite : var.getInvokes()) {
+            JMethod callee = resolveCallee(recv, callSite);
+            // the callee's IR is built by processCallEdge() while holding
+            // the call graph lock, which also publishes it to this thread
+            processCallEdge(callSite, callee);
+            addEntry(pointerFlowGraph.getVarPtr(callee.getIR().getThis()),
+                    new PointsToSet(recv));
+        }
+    }
+
+    /**
+     * Adds call edge "callSite -> callee" to the call graph, and if the
+     * edge is new, makes callee reachable and connects arguments and
+     * return values.
+     */
+    private void processCallEdge(Invoke callSite, JMethod callee) {
+        synchronized (callGraph) {
+            if (!callGraph.addEdge(new Edge<>(
+                    CallGraphs.getCallKind(callSite), callSite, callee))) {
+                return;
+            }
+            addReachable(callee);
+        }
+        for (int i = 0; i < callSite.getRValue().getArgCount(); i++) {
+            if (isPruned(callSite.getRValue().getArg(i))
+                    && isPruned(callee.getIR().getParam(i))) {
+                continue;
+            }
+            // addEdge(ai, pi)
+            addPFGEdge(pointerFlowGraph.getVarPtr(callSite.getRValue().getArg(i)),
+                    pointerFlowGraph.getVarPtr(callee.getIR().getParam(i)));
+        }
+        Var result = callSite.getLValue();
+        if (result != null) {
+            for (Var ret : callee.getIR().getReturnVars()) {
+                if (isPruned(ret) && isPruned(result)) {
+                    continue;
+                }
+                // addEdge(ret, r)
+                addPFGEdge(pointerFlowGraph.getVarPtr(ret),
+                        pointerFlowGraph.getVarPtr(result));
+            }
+        }
+    }
+
+    /**
+     * Resolves the field referenced by a field access. Field resolution
+     * caches its results in the class hierarchy as method dispatch does,
+     * thus it is guarded by the same lock.
+     */
+    private static JField resolveField(FieldRef fieldRef) {
+        synchronized (World.get().getClassHierarchy()) {
+            return fieldRef.resolve();
+        }
+    }
+
+    /**
+     * Resolves the callee of a call site with the receiver object.
+     */
+    private JMethod resolveCallee(Obj recv, Invoke callSite) {
+        Type type = recv != null ? recv.getType() : null;
+        return dispatchCache.resolveCallee(type, callSite);
+    }
+
+    CIPTAResult getResult() {
+        return new CIPTAResult(pointerFlowGraph, callGraph, dispatchCache);
+    }
+}
@@ -22,6 +22,8 @@
 
 package pascal.taie.analysis.pta.ci;
 
+import pascal.taie.language.type.Type;
+
 /**
  * Represents pointers in pointer analysis and nodes in pointer flow graph.
  *
@@ -29,9 +31,44 @@ package pascal.taie.analysis.pta.ci;
  */
 abstract class Pointer {
 
-    private final PointsToSet pointsToSet = new PointsToSet();
+    private PointsToSet pointsToSet = new PointsToSet();
+
+    /**
+     * Index of this pointer in the PFG.
+     */
+    private int index = -1;
+
+    /**
+     * Successors of this pointer in the PFG.
+     */
+    private final SuccessorArray successors = new SuccessorArray();
+
+    int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    SuccessorArray getSuccessors() {
+        return successors;
+    }
 
     PointsToSet getPointsToSet() {
         return pointsToSet;
     }
+
+    /**
+     * Sets the associated points-to set of the pointer. Pointers that are
+     * collapsed into one PFG node share the same points-to set.
+     */
+    void setPointsToSet(PointsToSet pointsToSet) {
+        this.pointsToSet = pointsToSet;
+    }
+
+    /**
+     * @return the declared type of the pointer.
+     */
+    abstract Type getType();
 }
@@ -28,46 +28,151 @@ import pascal.taie.language.classes.JField;
 import pascal.taie.util.collection.Maps;
 import pascal.taie.util.collection.MultiMap;
 import pascal.taie.util.collection.Sets;
-import pascal.taie.util.collection.TwoKeyMap;
 
+import java.util.ArrayDeque;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
 
 /**
  * Represents pointer flow graph in pointer analysis.
+ * <p>
+ * A concurrent PFG supports node creation, edge insertion and points-to set
+ * updates from multiple threads; it is used by {@link ParallelSolver}.
+ * Cycle collapsing and variable substitution are only supported by
+ * sequential PFGs.
  */
 class PointerFlowGraph {
 
+    /**
+     * Whether this PFG can be accessed by multiple threads.
+     */
+    private final boolean concurrent;
+
     /**
      * Set of all pointer in this PFG.
      */
-    private final Set<Pointer> pointers = Sets.newSet();
+    private final Set<Pointer> pointers;
 
     /**
      * Map from Variable to Var node.
      */
-    private final Map<Var, VarPtr> varPtrs = Maps.newMap();
+    private final Map<Var, VarPtr> varPtrs;
 
     /**
      * Map from JField to StaticField node.
      */
-    private final Map<JField, StaticField> staticFields = Maps.newMap();
+    private final Map<JField, StaticField> staticFields;
 
     /**
      * Map from (Obj, Field) to InstanceField node.
      */
-    private final TwoKeyMap<Obj, JField, InstanceField> instanceFields = Maps.newTwoKeyMap();
+    private final Map<Obj, Map<JField, InstanceField>> instanceFields;
 
     /**
      * Map from Obj (array) to ArrayIndex node.
      */
-    private final Map<Obj, ArrayIndex> arrayIndexes = Maps.newMap();
+    private final Map<Obj, ArrayIndex> arrayIndexes;
+
+    /**
+     * Pointers indexed by {@link Pointer#getIndex()}. The successors of
+     * each pointer are stored in the pointer as indexes of this array.
+     */
+    private volatile Pointer[] nodes = new Pointer[1024];
+
+    /**
+     * Number of pointers in {@link #nodes}, guarded by this PFG.
+     */
+    private int nodeCount = 0;
+
+    /**
+     * Compressed sparse row (CSR) layout of the successors after this PFG
+     * is frozen, i.e., the successors of the i-th pointer are
+     * {@code targets[offsets[i]]}, ..., {@code targets[offsets[i + 1] - 1]}.
+     */
+    private int[] offsets;
+
+    private int[] targets;
+
+    /**
+     * Map from a collapsed pointer to the representative of its cycle.
+     * Pointers that are absent from this map represent themselves.
+     */
+    private final Map<Pointer, Pointer> representatives = Maps.newMap();
+
+    /**
+     * Map from a representative to all pointers it represents
+     * (including itself). Only representatives of collapsed cycles
+     * are present in this map.
+     */
+    private final MultiMap<Pointer, Pointer> members = Maps.newMultiMap();
+
+    /**
+     * Number of representatives merged into another one by cycle elimination.
+     */
+    private int collapsedPointers = 0;
+
+    /**
+     * Number of variable pointers merged by offline variable substitution.
+     */
+    private int substitutedVars = 0;
+
+    /**
+     * Variables of primitive types whose pointers are pruned,
+     * i.e., never created by the solver.
+     */
+    private final Set<Var> prunedVars;
 
     /**
-     * Map from a pointer (node) to its successors in PFG.
+     * Constructs a PFG which can only be accessed by one thread.
      */
-    private final MultiMap<Pointer, Pointer> successors = Maps.newMultiMap();
+    PointerFlowGraph() {
+        this(false);
+    }
+
+    /**
+     * @param concurrent whether the PFG can be accessed by multiple threads.
+     */
+    PointerFlowGraph(boolean concurrent) {
+        this.concurrent = concurrent;
+        pointers = concurrent ? Sets.newConcurrentSet() : Sets.newSet();
+        prunedVars = concurrent ? Sets.newConcurrentSet() : Sets.newSet();
+        varPtrs = newMap();
+        staticFields = newMap();
+        instanceFields = newMap();
+        arrayIndexes = newMap();
+    }
+
+    private <K, V> Map<K, V> newMap() {
+        return concurrent ? Maps.newConcurrentMap() : Maps.newMap();
+    }
+
+    /**
+     * Adds a new pointer to this PFG and assigns its index. In a concurrent
+     * PFG, the pointer is given a thread-safe points-to set.
+     */
+    private <P extends Pointer> P addPointer(P pointer) {
+        if (concurrent) {
+            pointer.setPointsToSet(PointsToSet.newConcurrentSet());
+        }
+        synchronized (this) {
+            if (nodeCount == nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodeCount * 2);
+            }
+            pointer.setIndex(nodeCount);
+            nodes[nodeCount++] = pointer;
+        }
+        pointers.add(pointer);
+        return pointer;
+    }
 
     /**
      * Returns all pointers in this PFG.
@@ -80,22 +185,15 @@ class PointerFlowGraph {
      * @return the corresponding Var node for the given variable.
      */
     VarPtr getVarPtr(Var var) {
-        return varPtrs.computeIfAbsent(var, v -> {
-            VarPtr varPtr = new VarPtr(v);
-            pointers.add(varPtr);
-            return varPtr;
-        });
+        return varPtrs.computeIfAbsent(var, v -> addPointer(new VarPtr(v)));
     }
 
     /**
      * @return the corresponding StaticField node for the given static field.
      */
     StaticField getStaticField(JField field) {
-        return staticFields.computeIfAbsent(field, f -> {
-            StaticField staticField = new StaticField(f);
-            pointers.add(staticField);
-            return staticField;
-        });
+        return staticFields.computeIfAbsent(field,
+                f -> addPointer(new StaticField(f)));
     }
 
     /**
@@ -103,22 +201,16 @@ class PointerFlowGraph {
      * and instance field.
      */
     InstanceField getInstanceField(Obj base, JField field) {
-        return instanceFields.computeIfAbsent(base, field, (b, f) -> {
-                InstanceField instanceField = new InstanceField(b, f);
-                pointers.add(instanceField);
-                return instanceField;
-            });
+        return instanceFields.computeIfAbsent(base, b -> newMap())
+                .computeIfAbsent(field, f -> addPointer(new InstanceField(base, f)));
     }
 
     /**
      * @return the corresponding ArrayIndex node for the given array object.
      */
     ArrayIndex getArrayIndex(Obj array) {
-        return arrayIndexes.computeIfAbsent(array, a -> {
-            ArrayIndex arrayIndex = new ArrayIndex(a);
-            pointers.add(arrayIndex);
-            return arrayIndex;
-        });
+        return arrayIndexes.computeIfAbsent(array,
+                a -> addPointer(new ArrayIndex(a)));
     }
 
     /**
@@ -128,13 +220,311 @@ class PointerFlowGraph {
      * otherwise false.
      */
     boolean addEdge(Pointer source, Pointer target) {
-        return successors.put(source, target);
+        if (targets != null) {
+            throw new IllegalStateException("Cannot add edges to a frozen PFG");
+        }
+        Pointer s = getRepresentative(source);
+        Pointer t = getRepresentative(target);
+        if (s == t) { // edges inside a collapsed cycle are redundant
+            return false;
+        }
+        SuccessorArray succs = s.getSuccessors();
+        if (concurrent) {
+            synchronized (succs) {
+                return succs.add(t.getIndex());
+            }
+        }
+        return succs.add(t.getIndex());
+    }
+
+    /**
+     * @return successors of given pointer in the PFG. The result is a
+     * snapshot, which does not contain the edges added afterwards.
+     * The pointers created after the PFG is frozen have no successors.
+     */
+    List<Pointer> getSuccsOf(Pointer pointer) {
+        if (targets != null) {
+            int i = pointer.getIndex();
+            if (i + 1 >= offsets.length) {
+                return List.of();
+            }
+            return new Successors(targets, offsets[i], offsets[i + 1]);
+        }
+        SuccessorArray succs = pointer.getSuccessors();
+        if (concurrent) {
+            synchronized (succs) {
+                return new Successors(succs.indexes(), 0, succs.size());
+            }
+        }
+        return new Successors(succs.indexes(), 0, succs.size());
+    }
+
+    /**
+     * Pointers of the indexes in a range of an index array.
+     */
+    private class Successors extends AbstractList<Pointer> implements RandomAccess {
+
+        // read after the indexes, thus it contains all the indexed pointers
+        private final Pointer[] nodes = PointerFlowGraph.this.nodes;
+
+        private final int[] indexes;
+
+        private final int from;
+
+        private final int to;
+
+        private Successors(int[] indexes, int from, int to) {
+            this.indexes = indexes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Pointer get(int i) {
+            return nodes[indexes[from + i]];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * Freezes this PFG into CSR layout, which is compact and fast to
+     * traverse after the analysis. Edges cannot be added to a frozen PFG.
+     */
+    void freeze() {
+        if (targets != null) {
+            return;
+        }
+        int[] offs = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; ++i) {
+            offs[i + 1] = offs[i] + nodes[i].getSuccessors().size();
+        }
+        int[] tgts = new int[offs[nodeCount]];
+        for (int i = 0; i < nodeCount; ++i) {
+            SuccessorArray succs = nodes[i].getSuccessors();
+            System.arraycopy(succs.indexes(), 0, tgts, offs[i], succs.size());
+            succs.clear();
+        }
+        offsets = offs;
+        targets = tgts;
+    }
+
+    /**
+     * @return the representative of the cycle which the given pointer
+     * has been collapsed into, or the pointer itself if it is not collapsed.
+     */
+    Pointer getRepresentative(Pointer pointer) {
+        return representatives.getOrDefault(pointer, pointer);
+    }
+
+    /**
+     * @return all pointers represented by the given representative.
+     */
+    Set<Pointer> getMembers(Pointer rep) {
+        return members.containsKey(rep) ? members.get(rep) : Set.of(rep);
+    }
+
+    /**
+     * @return the number of pointers that have been collapsed into
+     * another representative by cycle elimination.
+     */
+    int getNumberOfCollapsedPointers() {
+        return collapsedPointers;
+    }
+
+    /**
+     * @return the number of variable pointers that have been merged
+     * into another representative by offline variable substitution.
+     */
+    int getNumberOfSubstitutedVars() {
+        return substitutedVars;
+    }
+
+    /**
+     * Records that the pointer of given variable is pruned.
+     */
+    void addPrunedVar(Var var) {
+        prunedVars.add(var);
+    }
+
+    /**
+     * @return the variables whose pointers are pruned.
+     */
+    Set<Var> getPrunedVars() {
+        return Collections.unmodifiableSet(prunedVars);
+    }
+
+    /**
+     * Merges a variable pointer into the representative of its pointer
+     * equivalence class. This must be done before any object reaches
+     * the pointers, as no objects are propagated by the merge.
+     */
+    void substitute(VarPtr var, VarPtr rep) {
+        Pointer r = getRepresentative(rep);
+        Pointer v = getRepresentative(var);
+        if (v != r) {
+            merge(r, List.of(r, v));
+            ++substitutedVars;
+        }
+    }
+
+    /**
+     * Computes the strongly connected component containing the given
+     * representative, i.e., the representatives which are reachable from
+     * {@code rep} and can also reach {@code rep}.
+     */
+    Set<Pointer> getSCCOf(Pointer rep) {
+        // forward: collect reachable representatives and reverse edges among them
+        MultiMap<Pointer, Pointer> preds = Maps.newMultiMap();
+        Set<Pointer> reachable = Sets.newSet();
+        Deque<Pointer> stack = new ArrayDeque<>();
+        reachable.add(rep);
+        stack.push(rep);
+        while (!stack.isEmpty()) {
+            Pointer p = stack.pop();
+            for (Pointer succ : getSuccsOf(p)) {
+                Pointer s = getRepresentative(succ);
+                preds.put(s, p);
+                if (reachable.add(s)) {
+                    stack.push(s);
+                }
+            }
+        }
+        // backward: keep the reachable representatives which reach rep
+        Set<Pointer> scc = Sets.newHybridSet();
+        scc.add(rep);
+        stack.push(rep);
+        while (!stack.isEmpty()) {
+            for (Pointer pred : preds.get(stack.pop())) {
+                if (scc.add(pred)) {
+                    stack.push(pred);
+                }
+            }
+        }
+        return scc;
+    }
+
+    /**
+     * Computes the strongly connected components of the representatives
+     * which are reachable from the given roots, by Tarjan's algorithm.
+     * The rest of this PFG is not visited.
+     *
+     * @return the components in topological order, i.e., every edge between
+     * two different components goes from an earlier to a later one.
+     */
+    List<List<Pointer>> getSCCsInTopologicalOrder(Collection<Pointer> roots) {
+        Map<Pointer, Integer> indexes = Maps.newMap();
+        Map<Pointer, Integer> lowLinks = Maps.newMap();
+        Deque<Pointer> sccStack = new ArrayDeque<>();
+        Set<Pointer> onStack = Sets.newSet();
+        Deque<DFSFrame> dfsStack = new ArrayDeque<>();
+        // Tarjan's algorithm finishes components in reverse topological order
+        Deque<List<Pointer>> sccs = new ArrayDeque<>();
+        for (Pointer start : roots) {
+            Pointer root = getRepresentative(start);
+            if (indexes.containsKey(root)) {
+                continue;
+            }
+            visit(root, indexes, lowLinks, sccStack, onStack, dfsStack);
+            while (!dfsStack.isEmpty()) {
+                DFSFrame frame = dfsStack.peek();
+                Pointer p = frame.pointer();
+                if (frame.succs().hasNext()) {
+                    Pointer s = getRepresentative(frame.succs().next());
+                    if (!indexes.containsKey(s)) {
+                        visit(s, indexes, lowLinks, sccStack, onStack, dfsStack);
+                    } else if (onStack.contains(s)) {
+                        lowLinks.put(p, Math.min(lowLinks.get(p), indexes.get(s)));
+                    }
+                } else {
+                    dfsStack.pop();
+                    if (lowLinks.get(p).equals(indexes.get(p))) {
+                        List<Pointer> scc = new ArrayList<>();
+                        Pointer q;
+                        do {
+                            q = sccStack.pop();
+                            onStack.remove(q);
+                            scc.add(q);
+                        } while (q != p);
+                        sccs.push(scc);
+                    }
+                    if (!dfsStack.isEmpty()) {
+                        Pointer parent = dfsStack.peek().pointer();
+                        lowLinks.put(parent, Math.min(lowLinks.get(parent), lowLinks.get(p)));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(sccs);
+    }
+
+    private void visit(Pointer p, Map<Pointer, Integer> indexes,
+                       Map<Pointer, Integer> lowLinks, Deque<Pointer> sccStack,
+                       Set<Pointer> onStack, Deque<DFSFrame> dfsStack) {
+        int index = indexes.size();
+        indexes.put(p, index);
+        lowLinks.put(p, index);
+        sccStack.push(p);
+        onStack.add(p);
+        dfsStack.push(new DFSFrame(p, getSuccsOf(p).iterator()));
+    }
+
+    private record DFSFrame(Pointer pointer, Iterator<Pointer> succs) {
+    }
+
+    /**
+     * Collapses the given representatives (which form a cycle in this PFG)
+     * into {@code rep}. Afterwards, all collapsed pointers share one
+     * points-to set and one successor set. The shared points-to set
+     * initially holds the objects that have already reached every collapsed
+     * pointer; the caller is responsible for propagating the returned
+     * objects, which reached only part of the cycle, to {@code rep}.
+     *
+     * @return the union of the points-to sets of the collapsed pointers.
+     */
+    PointsToSet collapse(Pointer rep, Collection<Pointer> cycle) {
+        for (Pointer p : cycle) {
+            if (p != rep) {
+                ++collapsedPointers;
+            }
+        }
+        return merge(rep, cycle);
     }
 
     /**
-     * @return successors of given pointer in the PFG.
+     * Merges the given representatives into {@code rep},
+     * as described in {@link #collapse(Pointer, Collection)}.
      */
-    Set<Pointer> getSuccsOf(Pointer pointer) {
-        return successors.get(pointer);
+    private PointsToSet merge(Pointer rep, Collection<Pointer> cycle) {
+        PointsToSet union = new PointsToSet();
+        cycle.forEach(p -> union.addAll(p.getPointsToSet()));
+        PointsToSet shared = new PointsToSet();
+        for (Obj obj : union) {
+            if (cycle.stream().allMatch(p -> p.getPointsToSet().contains(obj))) {
+                shared.addObject(obj);
+            }
+        }
+        members.put(rep, rep);
+        for (Pointer p : cycle) {
+            if (p != rep) {
+                for (Pointer member : getMembers(p)) {
+                    representatives.put(member, rep);
+                    members.put(rep, member);
+                }
+                members.removeAll(p);
+                SuccessorArray succs = p.getSuccessors();
+                for (int i = 0; i < succs.size(); ++i) {
+                    rep.getSuccessors().add(succs.indexes()[i]);
+                }
+                succs.clear();
+            }
+        }
+        // remove the edges which now lie inside the collapsed cycle
+        rep.getSuccessors().removeIf(i -> getRepresentative(nodes[i]) == rep);
+        members.get(rep).forEach(p -> p.setPointsToSet(shared));
+        return union;
     }
 }
@@ -35,18 +35,31 @@ import java.util.stream.Stream;
  */
 class PointsToSet implements Iterable<Obj> {
 
-    private final Set<Obj> set = Sets.newHybridSet();
+    private final Set<Obj> set;
 
     /**
      * Constructs an empty points-to set.
      */
     PointsToSet() {
+        this(Sets.newHybridSet());
+    }
+
+    private PointsToSet(Set<Obj> set) {
+        this.set = set;
+    }
+
+    /**
+     * @return an empty points-to set which can be updated by multiple threads.
+     */
+    static PointsToSet newConcurrentSet() {
+        return new PointsToSet(Sets.newConcurrentSet());
     }
 
     /**
      * Constructs a points-to set containing one object.
      */
     PointsToSet(Obj obj) {
+        this();
         addObject(obj);
     }
 
@@ -60,6 +73,16 @@ class PointsToSet implements Iterable<Obj> {
         return set.add(obj);
     }
 
+    /**
+     * Adds all objects in given pts to this set.
+     *
+     * @return true if this points-to set changed as a result of the call,
+     * otherwise false.
+     */
+    boolean addAll(PointsToSet pts) {
+        return set.addAll(pts.set);
+    }
+
     /**
      * @return true if this points-to set contains the given object, otherwise false.
      */
@@ -28,28 +28,93 @@ import pascal.taie.World;
 import pascal.taie.analysis.graph.callgraph.CallGraphs;
 import pascal.taie.analysis.graph.callgraph.CallKind;
 import pascal.taie.analysis.graph.callgraph.DefaultCallGraph;
+import pascal.taie.analysis.graph.callgraph.DispatchCache;
 import pascal.taie.analysis.graph.callgraph.Edge;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
 import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.config.AnalysisOptions;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.proginfo.MethodRef;
 import pascal.taie.ir.stmt.*;
 import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.util.AnalysisException;
+import pascal.taie.language.type.PrimitiveType;
 import pascal.taie.language.type.Type;
-
+import pascal.taie.util.collection.Lists;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 class Solver {
 
     private static final Logger logger = LogManager.getLogger(Solver.class);
 
+    private final AnalysisOptions options;
+
     private final HeapModel heapModel;
 
+    /**
+     * Whether collapse the cycles in PFG which are found by
+     * lazy cycle detection.
+     */
+    private final boolean collapseCycles;
+
+    /**
+     * Whether merge equivalent variables of each reachable method
+     * before processing its statements.
+     */
+    private final boolean substituteVars;
+
+    /**
+     * Whether propagate objects by waves over the topologically
+     * sorted PFG instead of in FIFO order of work-list entries.
+     */
+    private final boolean wavePropagation;
+
+    /**
+     * Whether only propagate the objects whose types are subtypes of
+     * the declared type of the target pointer.
+     */
+    private final boolean filterTypes;
+
+    private TypeFilter typeFilter;
+
+    /**
+     * Number of times that the points-to set of a pointer grows,
+     * which measures the propagation work of the solver.
+     */
+    private int updates = 0;
+
+    /**
+     * Number of waves of wave propagation.
+     */
+    private int waves = 0;
+
+    /**
+     * PFG edges which have been checked by lazy cycle detection.
+     */
+    private final Set<Pair<Pointer, Pointer>> checkedEdges = Sets.newSet();
+
+    /**
+     * Pointers which may be in PFG cycles and wait for cycle detection.
+     */
+    private final Set<Pointer> cycleCandidates = Sets.newHybridOrderedSet();
+
     private DefaultCallGraph callGraph;
 
+    private final DispatchCache dispatchCache = new DispatchCache();
+
     private PointerFlowGraph pointerFlowGraph;
 
     private WorkList workList;
@@ -58,8 +123,20 @@ class Solver {
 
     private ClassHierarchy hierarchy;
 
-    Solver(HeapModel heapModel) {
+    /**
+     * Whether pointers of primitive types are not created at all,
+     * as they never point to any object.
+     */
+    private final boolean prunePrimitives;
+
+    Solver(AnalysisOptions options, HeapModel heapModel) {
+        this.options = options;
         this.heapModel = heapModel;
+        this.collapseCycles = options.getBooleanOrDefault("collapse-cycles", false);
+        this.substituteVars = options.getBooleanOrDefault("substitute-vars", false);
+        this.wavePropagation = "wave".equals(options.getString("solver"));
+        this.filterTypes = options.getBooleanOrDefault("type-filter", false);
+        this.prunePrimitives = options.getBooleanOrDefault("prune-primitives", false);
     }
 
     /**
@@ -68,6 +145,7 @@ class Solver {
     void solve() {
         initialize();
         analyze();
+        pointerFlowGraph.freeze();
     }
 
     /**
@@ -79,6 +157,9 @@ class Solver {
         callGraph = new DefaultCallGraph();
         stmtProcessor = new StmtProcessor();
         hierarchy = World.get().getClassHierarchy();
+        if (filterTypes) {
+            typeFilter = new TypeFilter();
+        }
         // initialize main method
         JMethod main = World.get().getMainMethod();
         callGraph.addEntryMethod(main);
@@ -91,6 +172,15 @@ class Solver {
     private void addReachable(JMethod method) {
         // TODO - finish me
         if (callGraph.addReachableMethod(method)) {
+            if (substituteVars) {
+                VarSubstitution.compute(method.getIR()).forEach((var, rep) -> {
+                    if (!isPruned(var) || !isPruned(rep)) {
+                        pointerFlowGraph.substitute(
+                                pointerFlowGraph.getVarPtr(var),
+                                pointerFlowGraph.getVarPtr(rep));
+                    }
+                });
+            }
             for (Stmt stmt: method.getIR().getStmts()) {
                 stmt.accept(stmtProcessor);
             }
@@ -112,13 +202,16 @@ class Solver {
 
         @Override
         public Void visit(Copy stmt) {
-            addPFGEdge(pointerFlowGraph.getVarPtr(stmt.getRValue()), pointerFlowGraph.getVarPtr(stmt.getLValue()));
+            // both sides of a copy are either primitive or not
+            if (!isPruned(stmt.getRValue()) || !isPruned(stmt.getLValue())) {
+                addPFGEdge(pointerFlowGraph.getVarPtr(stmt.getRValue()), pointerFlowGraph.getVarPtr(stmt.getLValue()));
+            }
             return StmtVisitor.super.visit(stmt);
         }
 
         @Override
         public Void visit(StoreField stmt) {
-            if (stmt.isStatic()) {
+            if (stmt.isStatic() && !isPruned(stmt.getRValue())) {
                 addPFGEdge(
                         pointerFlowGraph.getVarPtr(stmt.getRValue()),
                         pointerFlowGraph.getStaticField(stmt.getLValue().getFieldRef().resolve())
@@ -129,7 +222,7 @@ class Solver {
 
         @Override
         public Void visit(LoadField stmt) {
-            if (stmt.isStatic()) {
+            if (stmt.isStatic() && !isPruned(stmt.getLValue())) {
                 addPFGEdge(
                         pointerFlowGraph.getStaticField(stmt.getRValue().getFieldRef().resolve()),
                         pointerFlowGraph.getVarPtr(stmt.getLValue())
@@ -145,6 +238,10 @@ class Solver {
                 if (callGraph.addEdge(new Edge<>(CallGraphs.getCallKind(stmt), stmt, method))) {
                     addReachable(method);
                     for (int i = 0; i < stmt.getRValue().getArgCount(); i++) {
+                        if (isPruned(stmt.getRValue().getArg(i))
+                                && isPruned(method.getIR().getParam(i))) {
+                            continue;
+                        }
                         // addEdge(ai, pi)
                         addPFGEdge(
                                 pointerFlowGraph.getVarPtr(stmt.getRValue().getArgs().get(i)),
@@ -153,7 +250,8 @@ class Solver {
                     }
                     for (Var ret : method.getIR().getReturnVars()) {
                         // addEdge(ret, r)
-                        if (stmt.getLValue() != null)
+                        if (stmt.getLValue() != null
+                                && (!isPruned(ret) || !isPruned(stmt.getLValue())))
                             addPFGEdge(
                                     pointerFlowGraph.getVarPtr(ret),
                                     pointerFlowGraph.getVarPtr(stmt.getLValue())
@@ -172,9 +270,62 @@ class Solver {
         // TODO - finish me
         if (pointerFlowGraph.addEdge(source, target)) {
             if (!source.getPointsToSet().isEmpty()) {
-                workList.addEntry(target, source.getPointsToSet());
+                addEntry(target, source.getPointsToSet());
+            }
+        }
+    }
+
+    /**
+     * Adds edges "source(o) -> target" to the PFG for each object o in objs,
+     * and propagates the objects of all new sources to target in one entry.
+     */
+    private void addPFGEdges(PointsToSet objs,
+                             Function<Obj, ? extends Pointer> source,
+                             Pointer target) {
+        PointsToSet pointsToSet = new PointsToSet();
+        for (Obj obj: objs) {
+            Pointer s = source.apply(obj);
+            if (pointerFlowGraph.addEdge(s, target)) {
+                pointsToSet.addAll(s.getPointsToSet());
             }
         }
+        if (!pointsToSet.isEmpty()) {
+            addEntry(target, pointsToSet);
+        }
+    }
+
+    /**
+     * Adds an entry to the work list, which propagates the objects
+     * in pointsToSet that can be pointed to by pointer.
+     */
+    private void addEntry(Pointer pointer, PointsToSet pointsToSet) {
+        PointsToSet objSet = filter(pointsToSet, pointer);
+        if (!objSet.isEmpty()) {
+            workList.addEntry(pointer, objSet);
+        }
+    }
+
+    /**
+     * @return the objects in pointsToSet which can be pointed to by target.
+     */
+    private PointsToSet filter(PointsToSet pointsToSet, Pointer target) {
+        return filterTypes ? typeFilter.filter(pointsToSet, target) : pointsToSet;
+    }
+
+    /**
+     * @return true if the pointers of given cycle can be collapsed.
+     * When filtering types, the pointers in a collapsed cycle must have
+     * the same type, as they share one points-to set.
+     */
+    private boolean isCollapsible(Collection<Pointer> cycle) {
+        if (cycle.size() <= 1) {
+            return false;
+        }
+        if (filterTypes) {
+            Type type = cycle.iterator().next().getType();
+            return cycle.stream().allMatch(p -> p.getType().equals(type));
+        }
+        return true;
     }
 
     /**
@@ -182,57 +333,166 @@ class Solver {
      */
     private void analyze() {
         // TODO - finish me
+        if (wavePropagation) {
+            analyzeInWaves();
+        } else {
+            while (!workList.isEmpty()) {
+                WorkList.Entry entry =  workList.pollEntry();
+                Pointer ptr = pointerFlowGraph.getRepresentative(entry.pointer());
+                PointsToSet objSet = entry.pointsToSet();
+
+                PointsToSet deltaSet = propagate(ptr, objSet);
+                processMembers(ptr, deltaSet);
+                if (!cycleCandidates.isEmpty()) {
+                    collapseCycles();
+                }
+            }
+        }
+        if (collapseCycles || wavePropagation) {
+            logger.info("{} pointers are collapsed into PFG cycles",
+                    pointerFlowGraph.getNumberOfCollapsedPointers());
+        }
+        logger.info("{} points-to set updates{}", updates,
+                wavePropagation ? " in " + waves + " waves" : "");
+    }
+
+    /**
+     * Wave propagation: each wave collapses the SCCs of the part of PFG
+     * reachable from the pointers in the work list, and then propagates
+     * all pending objects in one sweep over that part in topological order,
+     * so that every pointer is processed at most once per wave and after
+     * all its predecessors. The edges added by processing the statements
+     * on variables (and call edges) take effect in the next wave, as the
+     * objects along them, and those pending on pointers beyond the swept
+     * part, are put into the work list.
+     */
+    private void analyzeInWaves() {
         while (!workList.isEmpty()) {
-            WorkList.Entry entry =  workList.pollEntry();
-            Pointer ptr = entry.pointer(); PointsToSet objSet = entry.pointsToSet();
+            ++waves;
+            List<WorkList.Entry> entries = new ArrayList<>();
+            while (!workList.isEmpty()) {
+                entries.add(workList.pollEntry());
+            }
+            // collapse cycles and order the reachable PFG topologically
+            Map<Pointer, PointsToSet> pending = Maps.newMap();
+            List<Pointer> order = new ArrayList<>();
+            for (List<Pointer> scc : pointerFlowGraph.getSCCsInTopologicalOrder(
+                    Lists.map(entries, WorkList.Entry::pointer))) {
+                Pointer rep = scc.get(0);
+                if (isCollapsible(scc)) {
+                    addPending(pending, rep, pointerFlowGraph.collapse(rep, scc));
+                    order.add(rep);
+                } else {
+                    order.addAll(scc);
+                }
+            }
+            entries.forEach(entry -> addPending(pending,
+                    pointerFlowGraph.getRepresentative(entry.pointer()),
+                    entry.pointsToSet()));
+            // sweep
+            for (Pointer ptr : order) {
+                PointsToSet objSet = pending.remove(ptr);
+                if (objSet == null) {
+                    continue;
+                }
+                PointsToSet deltaSet = new PointsToSet();
+                for (Obj obj : objSet) {
+                    if (ptr.getPointsToSet().addObject(obj)) {
+                        deltaSet.addObject(obj);
+                    }
+                }
+                if (!deltaSet.isEmpty()) {
+                    ++updates;
+                    for (Pointer succ : pointerFlowGraph.getSuccsOf(ptr)) {
+                        PointsToSet succSet = filter(deltaSet, succ);
+                        if (!succSet.isEmpty()) {
+                            addPending(pending, pointerFlowGraph.getRepresentative(succ), succSet);
+                        }
+                    }
+                    processMembers(ptr, deltaSet);
+                }
+            }
+            // objects which flow along new edges to swept pointers
+            pending.forEach(workList::addEntry);
+        }
+    }
 
-            PointsToSet deltaSet = propagate(ptr, objSet);
-            if (ptr instanceof VarPtr) {
-                for (Obj obj: deltaSet) {
-                    Var var = ((VarPtr) ptr).getVar();
+    private static void addPending(Map<Pointer, PointsToSet> pending,
+                                   Pointer pointer, PointsToSet pointsToSet) {
+        pending.computeIfAbsent(pointer, p -> new PointsToSet()).addAll(pointsToSet);
+    }
 
-                    // x.f = y
-                    for (StoreField storeField: var.getStoreFields()) {
-                        // addEdge(y, o.f)
-                        addPFGEdge(
-                                pointerFlowGraph.getVarPtr(storeField.getRValue()),
-                                pointerFlowGraph.getInstanceField(obj, storeField.getLValue().getFieldRef().resolve())
-                        );
+    /**
+     * Processes the statements on the variables represented by ptr
+     * for the new objects in deltaSet.
+     */
+    private void processMembers(Pointer ptr, PointsToSet deltaSet) {
+        for (Pointer member : pointerFlowGraph.getMembers(ptr)) {
+            if (member instanceof VarPtr varPtr) {
+                Var var = varPtr.getVar();
+                // x.f = y
+                for (StoreField storeField: var.getStoreFields()) {
+                    if (isPruned(storeField.getRValue())) {
+                        continue;
                     }
-
-                    // y = x.f
-                    for (LoadField loadField: var.getLoadFields()) {
-                        // addEdge(o.f, y)
-                        addPFGEdge(
-                                pointerFlowGraph.getInstanceField(obj, loadField.getRValue().getFieldRef().resolve()),
-                                pointerFlowGraph.getVarPtr(loadField.getLValue())
-                        );
+                    // addEdge(y, o.f)
+                    Pointer from = pointerFlowGraph.getVarPtr(storeField.getRValue());
+                    JField field = storeField.getFieldRef().resolve();
+                    for (Obj obj: deltaSet) {
+                        addPFGEdge(from, pointerFlowGraph.getInstanceField(obj, field));
                     }
+                }
 
-                    // x[i] = y
-                    for (StoreArray storeArray: var.getStoreArrays()) {
-                        // addEdge(y, o.arr)
-                        addPFGEdge(
-                                pointerFlowGraph.getVarPtr(storeArray.getRValue()),
-                                pointerFlowGraph.getArrayIndex(obj)
-                        );
+                // y = x.f
+                for (LoadField loadField: var.getLoadFields()) {
+                    if (isPruned(loadField.getLValue())) {
+                        continue;
                     }
+                    // addEdge(o.f, y)
+                    JField field = loadField.getFieldRef().resolve();
+                    addPFGEdges(deltaSet, obj -> pointerFlowGraph.getInstanceField(obj, field),
+                            pointerFlowGraph.getVarPtr(loadField.getLValue()));
+                }
 
-                    // y = x[i]
-                    for (LoadArray loadArray: var.getLoadArrays()) {
-                        // addEdge(o.arr, y)
-                        addPFGEdge(
-                                pointerFlowGraph.getArrayIndex(obj),
-                                pointerFlowGraph.getVarPtr(loadArray.getLValue())
-                        );
+                // x[i] = y
+                for (StoreArray storeArray: var.getStoreArrays()) {
+                    if (isPruned(storeArray.getRValue())) {
+                        continue;
                     }
+                    // addEdge(y, o.arr)
+                    Pointer from = pointerFlowGraph.getVarPtr(storeArray.getRValue());
+                    for (Obj obj: deltaSet) {
+                        addPFGEdge(from, pointerFlowGraph.getArrayIndex(obj));
+                    }
+                }
 
-                    processCall(var, obj);
+                // y = x[i]
+                for (LoadArray loadArray: var.getLoadArrays()) {
+                    if (isPruned(loadArray.getLValue())) {
+                        continue;
+                    }
+                    // addEdge(o.arr, y)
+                    addPFGEdges(deltaSet, pointerFlowGraph::getArrayIndex,
+                            pointerFlowGraph.getVarPtr(loadArray.getLValue()));
                 }
+                processCall(var, deltaSet);
             }
         }
     }
 
+    /**
+     * @return whether the pointer of given variable is pruned, i.e.,
+     * primitive pointers are pruned and the variable is primitive.
+     * The pruned variable is recorded in the PFG.
+     */
+    private boolean isPruned(Var var) {
+        if (prunePrimitives && var.getType() instanceof PrimitiveType) {
+            pointerFlowGraph.addPrunedVar(var);
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Propagates pointsToSet to pt(pointer) and its PFG successors,
      * returns the difference set of pointsToSet and pt(pointer).
@@ -246,45 +506,110 @@ class Solver {
                 deltaSet.addObject(obj);
 
         if (!deltaSet.isEmpty()) {
+            ++updates;
             // Union
             for (Obj obj: deltaSet)
                 pointer.getPointsToSet().addObject(obj);
+            if (collapseCycles) {
+                detectCycleCandidates(pointer, deltaSet);
+            }
             // Propagate
             for (Pointer ptr: pointerFlowGraph.getSuccsOf(pointer))
-                workList.addEntry(ptr, deltaSet);
+                addEntry(ptr, deltaSet);
         }
 
         return deltaSet;
     }
 
+    /**
+     * Lazy cycle detection: if the new objects of pointer add nothing to
+     * one of its successors, and both have points-to sets of the same size,
+     * then the successor already received the same delta, which hints
+     * (but does not prove) that they are in a PFG cycle. Such pointers
+     * are only recorded as candidates, and {@link #collapseCycles()}
+     * collapses a cycle only after {@link PointerFlowGraph#getSCCOf}
+     * confirms it. Only deltaSet is scanned, and each edge is checked
+     * at most once.
+     */
+    private void detectCycleCandidates(Pointer pointer, PointsToSet deltaSet) {
+        int size = pointer.getPointsToSet().size();
+        for (Pointer succ : pointerFlowGraph.getSuccsOf(pointer)) {
+            PointsToSet succPts = succ.getPointsToSet();
+            if (succPts.size() == size
+                    && deltaSet.objects().allMatch(succPts::contains)
+                    && checkedEdges.add(new Pair<>(pointer, succ))) {
+                cycleCandidates.add(pointer);
+            }
+        }
+    }
+
+    /**
+     * Collapses the PFG cycles through the candidate pointers, and
+     * propagates the objects that reached only part of each cycle
+     * to the whole cycle.
+     */
+    private void collapseCycles() {
+        for (Pointer candidate : cycleCandidates) {
+            Pointer rep = pointerFlowGraph.getRepresentative(candidate);
+            Set<Pointer> scc = pointerFlowGraph.getSCCOf(rep);
+            if (isCollapsible(scc)) {
+                workList.addEntry(rep, pointerFlowGraph.collapse(rep, scc));
+            }
+        }
+        cycleCandidates.clear();
+    }
+
     /**
      * Processes instance calls when points-to set of the receiver variable changes.
+     * The new receiver objects are grouped by the callees they dispatch to,
+     * so that each callee receives its objects on its this variable at once,
+     * and each call edge is added at most once.
      *
-     * @param var the variable that holds receiver objects
-     * @param recv a new discovered object pointed by the variable.
+     * @param var      the variable that holds receiver objects
+     * @param deltaSet set of new discovered objects pointed by the variable.
      */
-    private void processCall(Var var, Obj recv) {
+    private void processCall(Var var, PointsToSet deltaSet) {
         // TODO - finish me
         for (Invoke callSite: var.getInvokes()) {
-            JMethod method = resolveCallee(recv, callSite);
-            workList.addEntry(pointerFlowGraph.getVarPtr(method.getIR().getThis()), new PointsToSet(recv));
-            if (callGraph.addEdge(new Edge<>(CallGraphs.getCallKind(callSite), callSite, method))) {
-                addReachable(method);
-                for (int i = 0; i < callSite.getRValue().getArgCount(); i ++) {
-                    // addEdge(ai, pi)
+            Map<JMethod, PointsToSet> recvObjs = new LinkedHashMap<>();
+            for (Obj recv : deltaSet) {
+                recvObjs.computeIfAbsent(resolveCallee(recv, callSite),
+                        m -> new PointsToSet()).addObject(recv);
+            }
+            recvObjs.forEach((method, objs) -> processCallEdge(callSite, method, objs));
+        }
+    }
+
+    /**
+     * Passes the receiver objects to the this variable of callee, and
+     * adds call edge "callSite -> callee" if it is new.
+     */
+    private void processCallEdge(Invoke callSite, JMethod method, PointsToSet recvObjs) {
+        Pointer thisPtr = pointerFlowGraph.getVarPtr(method.getIR().getThis());
+        if (!recvObjs.objects().allMatch(thisPtr.getPointsToSet()::contains)) {
+            workList.addEntry(thisPtr, recvObjs);
+        }
+        if (callGraph.addEdge(new Edge<>(CallGraphs.getCallKind(callSite), callSite, method))) {
+            addReachable(method);
+            for (int i = 0; i < callSite.getRValue().getArgCount(); i ++) {
+                if (isPruned(callSite.getRValue().getArg(i))
+                        && isPruned(method.getIR().getParam(i))) {
+                    continue;
+                }
+                // addEdge(ai, pi)
+                addPFGEdge(
+                        pointerFlowGraph.getVarPtr(callSite.getRValue().getArgs().get(i)),
+                        pointerFlowGraph.getVarPtr(method.getIR().getParams().get(i))
+                );
+            }
+            for (Var ret: method.getIR().getReturnVars()) {
+                // addEdge(ret, r)
+                if (callSite.getLValue() != null
+                        && (!isPruned(ret) || !isPruned(callSite.getLValue())))
                     addPFGEdge(
-                            pointerFlowGraph.getVarPtr(callSite.getRValue().getArgs().get(i)),
-                            pointerFlowGraph.getVarPtr(method.getIR().getParams().get(i))
+                            pointerFlowGraph.getVarPtr(ret),
+                            pointerFlowGraph.getVarPtr(callSite.getLValue())
                     );
-                }
-                for (Var ret: method.getIR().getReturnVars()) {
-                    // addEdge(ret, r)
-                    if (callSite.getLValue() != null)
-                        addPFGEdge(
-                                pointerFlowGraph.getVarPtr(ret),
-                                pointerFlowGraph.getVarPtr(callSite.getLValue())
-                        );
-                }
             }
         }
     }
@@ -299,10 +624,10 @@ class Solver {
      */
     private JMethod resolveCallee(Obj recv, Invoke callSite) {
         Type type = recv != null ? recv.getType() : null;
-        return CallGraphs.resolveCallee(type, callSite);
+        return dispatchCache.resolveCallee(type, callSite);
     }
 
     CIPTAResult getResult() {
-        return new CIPTAResult(pointerFlowGraph, callGraph);
+        return new CIPTAResult(pointerFlowGraph, callGraph, dispatchCache);
     }
 }
@@ -0,0 +1,159 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Successors of a PFG node, i.e., the indexes of the successor nodes
+ * in a growable array. Duplicate successors are detected by scanning the
+ * array while it is small, and by an open-addressing hash table of
+ * the indexes after it grows larger.
+ * <p>
+ * The elements below {@link #size()} of the array returned by
+ * {@link #indexes()} never change, as the array is replaced when it
+ * grows or some successors are removed. Thus, a reader can safely
+ * iterate a snapshot of the successors while they are being added.
+ */
+class SuccessorArray {
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Maximum size for which duplicates are detected by scanning.
+     */
+    private static final int SCAN_LIMIT = 16;
+
+    private int[] indexes = EMPTY;
+
+    private int size = 0;
+
+    /**
+     * Open-addressing hash table of (index + 1), where 0 means empty slot.
+     * It is null while the size is not greater than {@link #SCAN_LIMIT}.
+     */
+    private int[] table;
+
+    /**
+     * @return true if the successors changed as a result of the call.
+     */
+    boolean add(int index) {
+        if (contains(index)) {
+            return false;
+        }
+        if (size == indexes.length) {
+            indexes = Arrays.copyOf(indexes, Math.max(4, size * 2));
+        }
+        indexes[size++] = index;
+        if (table != null && size * 2 <= table.length) {
+            insert(table, index);
+        } else if (size > SCAN_LIMIT) {
+            rehash();
+        }
+        return true;
+    }
+
+    boolean contains(int index) {
+        if (table == null) {
+            for (int i = 0; i < size; ++i) {
+                if (indexes[i] == index) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        int mask = table.length - 1;
+        for (int i = hash(index) & mask; table[i] != 0; i = (i + 1) & mask) {
+            if (table[i] == index + 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the successors that satisfy given filter.
+     */
+    void removeIf(IntPredicate filter) {
+        int[] remaining = new int[indexes.length];
+        int n = 0;
+        for (int i = 0; i < size; ++i) {
+            if (!filter.test(indexes[i])) {
+                remaining[n++] = indexes[i];
+            }
+        }
+        indexes = remaining;
+        size = n;
+        table = null;
+        if (size > SCAN_LIMIT) {
+            rehash();
+        }
+    }
+
+    /**
+     * Removes all successors and releases the memory.
+     */
+    void clear() {
+        indexes = EMPTY;
+        size = 0;
+        table = null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the array of which the first {@link #size()} elements
+     * are the successors.
+     */
+    int[] indexes() {
+        return indexes;
+    }
+
+    private void rehash() {
+        int capacity = 64;
+        while (capacity < size * 4) {
+            capacity <<= 1;
+        }
+        table = new int[capacity];
+        for (int i = 0; i < size; ++i) {
+            insert(table, indexes[i]);
+        }
+    }
+
+    private static void insert(int[] table, int index) {
+        int mask = table.length - 1;
+        int i = hash(index) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = index + 1;
+    }
+
+    private static int hash(int index) {
+        int h = index * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.World;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+
+/**
+ * Filters the objects that flow along PFG edges by the declared type
+ * of the target pointer, i.e., an object is propagated to a pointer only
+ * if the type of the object is a subtype of the type of the pointer.
+ * <p>
+ * The same pairs of types are checked repeatedly during the analysis,
+ * thus the results of subtype checks are cached. The cache can be
+ * accessed by multiple threads.
+ */
+class TypeFilter {
+
+    private final TypeSystem typeSystem = World.get().getTypeSystem();
+
+    /**
+     * Map from a pointer type to the object types that have been checked
+     * against it, and whether they are its subtypes.
+     */
+    private final Map<Type, Map<Type, Boolean>> subtypes = Maps.newConcurrentMap();
+
+    /**
+     * @return the objects in pointsToSet which can be pointed to by target.
+     * If all objects can be pointed to by target, pointsToSet itself is returned.
+     */
+    PointsToSet filter(PointsToSet pointsToSet, Pointer target) {
+        Type type = target.getType();
+        if (pointsToSet.objects().allMatch(o -> isSubtype(type, o))) {
+            return pointsToSet;
+        }
+        PointsToSet result = new PointsToSet();
+        pointsToSet.objects()
+                .filter(o -> isSubtype(type, o))
+                .forEach(result::addObject);
+        return result;
+    }
+
+    private boolean isSubtype(Type type, Obj obj) {
+        return subtypes.computeIfAbsent(type, t -> Maps.newConcurrentMap())
+                .computeIfAbsent(obj.getType(), objType -> {
+                    // the type system is not designed for concurrent access
+                    synchronized (typeSystem) {
+                        return typeSystem.isSubtype(type, objType);
+                    }
+                });
+    }
+}
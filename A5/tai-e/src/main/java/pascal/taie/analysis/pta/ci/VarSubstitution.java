@@ -0,0 +1,111 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.LValue;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Offline variable substitution, in the style of hash-based value
+ * numbering (HVN).
+ * <p>
+ * A variable whose only definition is a copy {@code x = y} (and which
+ * is neither "this" nor a parameter, as those also receive objects from
+ * call sites) always points to the same objects as {@code y}. Such
+ * variables are grouped into equivalence classes, so that pointer
+ * analysis only needs to propagate objects to one representative
+ * of each class.
+ */
+class VarSubstitution {
+
+    private VarSubstitution() {
+    }
+
+    /**
+     * Computes the pointer equivalence classes of the variables in given IR.
+     *
+     * @return map from each substitutable variable to the representative
+     * of its equivalence class. The representatives are not in the key set.
+     */
+    static Map<Var, Var> compute(IR ir) {
+        Map<Var, Integer> defCounts = Maps.newMap();
+        Map<Var, Var> copySources = Maps.newMap();
+        for (Stmt stmt : ir) {
+            LValue def = stmt.getDef().orElse(null);
+            if (def instanceof Var var) {
+                defCounts.merge(var, 1, Integer::sum);
+                if (stmt instanceof Copy copy) {
+                    copySources.put(var, copy.getRValue());
+                }
+            }
+        }
+        Set<Var> params = Sets.newHybridSet(ir.getParams());
+        if (ir.getThis() != null) {
+            params.add(ir.getThis());
+        }
+        Map<Var, Var> sources = Maps.newMap();
+        copySources.forEach((var, source) -> {
+            if (defCounts.get(var) == 1 && !params.contains(var)) {
+                sources.put(var, source);
+            }
+        });
+        Map<Var, Var> reps = Maps.newMap();
+        sources.keySet().forEach(var -> findRep(var, sources, reps));
+        return reps;
+    }
+
+    /**
+     * Follows the copy chain starting from var to its representative,
+     * and then records the representative for every variable on the chain.
+     * Variables on a copy cycle without any other source
+     * are represented by the first variable of the cycle that is visited.
+     */
+    private static void findRep(Var var, Map<Var, Var> sources, Map<Var, Var> reps) {
+        List<Var> chain = new ArrayList<>();
+        Set<Var> visited = Sets.newHybridSet();
+        Var rep = var;
+        while (!reps.containsKey(rep) && sources.containsKey(rep)
+                && visited.add(rep)) {
+            chain.add(rep);
+            rep = sources.get(rep);
+        }
+        // rep is either resolved before, the root of the copy chain,
+        // or the first visited variable of a copy cycle
+        rep = reps.getOrDefault(rep, rep);
+        for (Var v : chain) {
+            if (v != rep) {
+                reps.put(v, rep);
+            }
+        }
+    }
+}
@@ -78,4 +78,68 @@ public class CIPTATest {
     public void testMergeParam() {
         Tests.testCIPTA(DIR, "MergeParam");
     }
+
+    @Test
+    public void testAssign2CollapseCycles() {
+        Tests.testCIPTA(DIR, "Assign2", "collapse-cycles:true");
+    }
+
+    @Test
+    public void testExampleCollapseCycles() {
+        Tests.testCIPTA(DIR, "Example", "collapse-cycles:true");
+    }
+
+    @Test
+    public void testAssignSubstituteVars() {
+        Tests.testCIPTA(DIR, "Assign", "substitute-vars:true");
+    }
+
+    @Test
+    public void testCallSubstituteVars() {
+        Tests.testCIPTA(DIR, "Call", "substitute-vars:true");
+    }
+
+    @Test
+    public void testExampleParallel() {
+        Tests.testCIPTA(DIR, "Example", "solver:parallel", "threads:4");
+    }
+
+    @Test
+    public void testStaticCallParallel() {
+        Tests.testCIPTA(DIR, "StaticCall", "solver:parallel", "threads:4");
+    }
+
+    @Test
+    public void testStaticCallPrunePrimitives() {
+        // pruned primitive pointers match their empty points-to sets
+        Tests.testCIPTA(DIR, "StaticCall", "prune-primitives:true");
+        Tests.testCIPTA(DIR, "StaticCall", "prune-primitives:true",
+                "solver:parallel", "threads:4");
+    }
+
+    @Test
+    public void testExampleWave() {
+        Tests.testCIPTA(DIR, "Example", "solver:wave");
+    }
+
+    @Test
+    public void testAssign2Wave() {
+        Tests.testCIPTA(DIR, "Assign2", "solver:wave");
+    }
+
+    @Test
+    public void testWaveCallWave() {
+        // the call edge, and the PFG edges along it, are added mid-wave
+        Tests.testCIPTA(DIR, "WaveCall", "solver:wave");
+    }
+
+    @Test
+    public void testInstanceFieldTypeFilter() {
+        Tests.testCIPTA(DIR, "InstanceField", "type-filter:true");
+    }
+
+    @Test
+    public void testCallTypeFilterParallel() {
+        Tests.testCIPTA(DIR, "Call", "type-filter:true", "solver:parallel", "threads:4");
+    }
 }
@@ -0,0 +1,52 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import org.junit.Test;
+import pascal.taie.ir.exp.Var;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PointerFlowGraphTest {
+
+    private static Var newVar(String name, int index) {
+        return new Var(null, name, null, index);
+    }
+
+    @Test
+    public void testSuccsOfPointerCreatedAfterFreeze() {
+        PointerFlowGraph pfg = new PointerFlowGraph();
+        VarPtr a = pfg.getVarPtr(newVar("a", 0));
+        VarPtr b = pfg.getVarPtr(newVar("b", 1));
+        pfg.addEdge(a, b);
+        pfg.freeze();
+        // e.g., CIPTAResult queries a variable that the solver never reached
+        VarPtr unreached = pfg.getVarPtr(newVar("unreached", 2));
+        assertTrue(pfg.getSuccsOf(unreached).isEmpty());
+        assertEquals(List.of(b), pfg.getSuccsOf(a));
+        assertTrue(pfg.getSuccsOf(b).isEmpty());
+    }
+}
@@ -0,0 +1,15 @@
+public class WaveCall {
+
+    public static void main(String[] args) {
+        B b = new B();
+        B r = b.id(b);
+    }
+}
+
+class B {
+
+    B id(B p) {
+        B q = p;
+        return q;
+    }
+}
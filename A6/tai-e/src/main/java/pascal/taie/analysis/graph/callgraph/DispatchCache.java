@@ -0,0 +1,136 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the callees resolved at each call site for the types of
+ * receiver objects, as the same call site is resolved on the same types
+ * repeatedly, e.g., for each receiver object of the same type and
+ * in each context.
+ * <p>
+ * Each call site has an inline cache of the first resolved type,
+ * which is upgraded to a map when the call site turns out polymorphic.
+ * The cache is thread-safe.
+ */
+public class DispatchCache {
+
+    private final Map<Invoke, Site> sites = Maps.newConcurrentMap();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Resolves the callee of a call site with the type of receiver object.
+     *
+     * @param type     the type of the receiver object. If the callSite
+     *                 is static, this parameter is ignored (i.e., can be null).
+     * @param callSite the call site to be resolved.
+     * @return the resolved callee.
+     * @see CallGraphs#resolveCallee(Type, Invoke)
+     */
+    public JMethod resolveCallee(Type type, Invoke callSite) {
+        Site site = sites.computeIfAbsent(callSite, s -> new Site());
+        JMethod callee = site.get(type);
+        if (callee != null) {
+            hits.increment();
+            return callee;
+        }
+        misses.increment();
+        callee = resolve(type, callSite);
+        if (callee != null) {
+            site.put(type, callee);
+        }
+        return callee;
+    }
+
+    /**
+     * Resolves a callee missed by this cache.
+     * Subclasses may override this method, e.g., to guard the resolution.
+     */
+    protected JMethod resolve(Type type, Invoke callSite) {
+        return CallGraphs.resolveCallee(type, callSite);
+    }
+
+    /**
+     * @return the number of resolutions answered by this cache.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of resolutions missed by this cache.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Cached callees of a call site.
+     */
+    private static class Site {
+
+        /**
+         * Inline cache of the first resolved type and its callee.
+         */
+        private volatile Entry first;
+
+        /**
+         * Callees of the other resolved types, created when the call
+         * site turns out polymorphic.
+         */
+        private volatile Map<Type, JMethod> others;
+
+        private JMethod get(Type type) {
+            Entry e = first;
+            if (e != null && e.type() == type) {
+                return e.callee();
+            }
+            Map<Type, JMethod> m = others;
+            return m != null && type != null ? m.get(type) : null;
+        }
+
+        private synchronized void put(Type type, JMethod callee) {
+            if (first == null) {
+                first = new Entry(type, callee);
+            } else if (type != null) {
+                if (others == null) {
+                    others = Maps.newConcurrentMap();
+                }
+                others.put(type, callee);
+            }
+        }
+    }
+
+    private record Entry(Type type, JMethod callee) {
+    }
+}
@@ -31,10 +31,14 @@ import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
 import pascal.taie.util.collection.Sets;
 import pascal.taie.util.collection.Views;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
 
@@ -45,6 +49,11 @@ public class CSCallGraph extends AbstractCallGraph<CSCallSite, CSMethod> {
 
     private final CSManager csManager;
 
+    /**
+     * Invocation statements of the methods that have been processed.
+     */
+    private final Map<JMethod, List<Invoke>> invokesIn = Maps.newMap();
+
     public CSCallGraph(CSManager csManager) {
         this.csManager = csManager;
     }
@@ -64,8 +73,12 @@ public class CSCallGraph extends AbstractCallGraph<CSCallSite, CSMethod> {
      */
     public boolean addReachableMethod(CSMethod csMethod) {
         if (reachableMethods.add(csMethod)) {
-            callSitesIn(csMethod).forEach(csCallSite ->
-                    csCallSite.setContainer(csMethod));
+            Context context = csMethod.getContext();
+            for (Invoke invoke : getInvokesIn(csMethod.getMethod())) {
+                CSCallSite csCallSite = csManager.getCSCallSite(context, invoke);
+                csCallSite.setContainer(csMethod);
+                callSitesIn.put(csMethod, csCallSite);
+            }
             return true;
         } else {
             return false;
@@ -88,6 +101,14 @@ public class CSCallGraph extends AbstractCallGraph<CSCallSite, CSMethod> {
         }
     }
 
+    /**
+     * @return true if this call graph contains a call edge
+     * from given call site to given callee.
+     */
+    public boolean hasEdge(CSCallSite csCallSite, CSMethod callee) {
+        return csCallSite.hasCallee(callee);
+    }
+
     @Override
     public Set<CSCallSite> getCallersOf(CSMethod callee) {
         return Views.toMappedSet(callee.getEdges(), Edge::getCallSite);
@@ -103,20 +124,39 @@ public class CSCallGraph extends AbstractCallGraph<CSCallSite, CSMethod> {
         return csCallSite.getContainer();
     }
 
+    /**
+     * The call sites of a reachable method are computed once when
+     * it becomes reachable; those of other methods are computed on demand.
+     */
     @Override
     public Set<CSCallSite> getCallSitesIn(CSMethod csMethod) {
-        JMethod method = csMethod.getMethod();
+        if (reachableMethods.contains(csMethod)) {
+            return callSitesIn.get(csMethod);
+        }
         Context context = csMethod.getContext();
         Set<CSCallSite> callSites = Sets.newHybridOrderedSet();
-        for (Stmt s : method.getIR()) {
-            if (s instanceof Invoke) {
-                CSCallSite csCallSite = csManager.getCSCallSite(context, (Invoke) s);
-                callSites.add(csCallSite);
-            }
+        for (Invoke invoke : getInvokesIn(csMethod.getMethod())) {
+            callSites.add(csManager.getCSCallSite(context, invoke));
         }
         return Collections.unmodifiableSet(callSites);
     }
 
+    /**
+     * @return the invocation statements in given method, which are
+     * shared by the CS methods of all contexts.
+     */
+    private List<Invoke> getInvokesIn(JMethod method) {
+        return invokesIn.computeIfAbsent(method, m -> {
+            List<Invoke> invokes = new ArrayList<>();
+            for (Stmt s : m.getIR()) {
+                if (s instanceof Invoke invoke) {
+                    invokes.add(invoke);
+                }
+            }
+            return invokes.isEmpty() ? List.of() : invokes;
+        });
+    }
+
     @Override
     public Stream<Edge<CSCallSite, CSMethod>> edgesOutOf(CSCallSite csCallSite) {
         return csCallSite.getEdges().stream();
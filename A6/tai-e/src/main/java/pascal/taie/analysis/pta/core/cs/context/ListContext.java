@@ -28,6 +28,10 @@ import java.util.List;
 
 /**
  * List-based contexts. Each context is represented by a list of context elements.
+ * <p>
+ * The context selectors of pointer analysis make {@link TrieContext}s,
+ * which never equal list contexts with the same elements, thus list
+ * contexts must not be mixed with them in one analysis.
  *
  * @param <T> type of context elements
  */
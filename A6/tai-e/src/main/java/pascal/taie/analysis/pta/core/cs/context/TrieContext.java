@@ -0,0 +1,195 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.context;
+
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Contexts interned in a trie. Each context is a node of the trie whose
+ * parent is the context without its last element, and the root of the
+ * trie is the empty context. Thus, equal contexts are always the same
+ * instance, which is compared by reference and numbered by a unique ID.
+ * A trie context never equals a {@link ListContext}, even if they have
+ * the same elements, thus the two kinds of contexts must not be mixed in
+ * one analysis.
+ * <p>
+ * The trie is global, and is cleared by {@link #reset()} at the start of
+ * each pointer analysis, so that the contexts of a finished analysis are
+ * not kept alive by the trie.
+ */
+public final class TrieContext implements Context {
+
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    /**
+     * The empty context, i.e., the root of the trie.
+     */
+    private static final TrieContext ROOT = new TrieContext(null, null);
+
+    private final TrieContext parent;
+
+    /**
+     * The last element of this context.
+     */
+    private final Object element;
+
+    private final int length;
+
+    private final int id;
+
+    /**
+     * Map from an element to the context that appends it to this context.
+     * Created lazily, and guarded by this context.
+     */
+    private Map<Object, TrieContext> children;
+
+    private TrieContext(TrieContext parent, Object element) {
+        this.parent = parent;
+        this.element = element;
+        this.length = parent == null ? 0 : parent.length + 1;
+        this.id = counter.getAndIncrement();
+    }
+
+    /**
+     * Discards all contexts interned so far, and restarts the numbering
+     * of contexts. The contexts made before a reset must not be mixed
+     * with the ones made after it, as they are neither interned together
+     * nor numbered uniquely.
+     */
+    public static void reset() {
+        synchronized (ROOT) {
+            ROOT.children = null;
+        }
+        counter.set(ROOT.id + 1);
+    }
+
+    /**
+     * @return an empty context.
+     */
+    public static Context make() {
+        return ROOT;
+    }
+
+    /**
+     * @return the context that consists of given context elements.
+     */
+    public static Context make(Object... elements) {
+        TrieContext context = ROOT;
+        for (Object element : elements) {
+            context = context.getChild(element);
+        }
+        return context;
+    }
+
+    /**
+     * @return the context that appends {@code element} to {@code parent}
+     * and keeps at most the last {@code limit} elements.
+     */
+    public static Context append(Context parent, Object element, int limit) {
+        if (limit <= 0) {
+            return ROOT;
+        }
+        return intern(makeLastK(parent, limit - 1)).getChild(element);
+    }
+
+    /**
+     * @return the context that consists of the last k elements of given context.
+     */
+    public static Context makeLastK(Context context, int k) {
+        if (context.getLength() <= k) {
+            return intern(context);
+        }
+        int n = context.getLength();
+        Object[] elements = new Object[k];
+        for (int i = 0; i < k; ++i) {
+            elements[i] = context.getElementAt(n - k + i);
+        }
+        return make(elements);
+    }
+
+    /**
+     * @return the interned instance of given context.
+     */
+    private static TrieContext intern(Context context) {
+        if (context instanceof TrieContext trieContext) {
+            return trieContext;
+        }
+        Object[] elements = new Object[context.getLength()];
+        for (int i = 0; i < elements.length; ++i) {
+            elements[i] = context.getElementAt(i);
+        }
+        return (TrieContext) make(elements);
+    }
+
+    private synchronized TrieContext getChild(Object element) {
+        if (children == null) {
+            children = Maps.newHybridMap();
+        }
+        return children.computeIfAbsent(element, e -> new TrieContext(this, e));
+    }
+
+    /**
+     * @return the unique ID of this context.
+     */
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public Object getElementAt(int i) {
+        if (i < 0 || i >= length) {
+            throw new AnalysisException(
+                    "Context " + this + " doesn't have " + i + "-th element");
+        }
+        TrieContext context = this;
+        for (int j = length - 1; j > i; --j) {
+            context = context.parent;
+        }
+        return context.element;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        List<Object> elements = new ArrayList<>(length);
+        for (TrieContext c = this; c != ROOT; c = c.parent) {
+            elements.add(0, c.element);
+        }
+        return elements.toString();
+    }
+}
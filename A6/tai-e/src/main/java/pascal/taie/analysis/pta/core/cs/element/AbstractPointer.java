@@ -28,6 +28,12 @@ abstract class AbstractPointer implements Pointer {
 
     private PointsToSet pointsToSet;
 
+    /**
+     * Index in the PFG, which is volatile as it is read without locking
+     * by the threads of a concurrent PFG.
+     */
+    private volatile int index = -1;
+
     @Override
     public PointsToSet getPointsToSet() {
         return pointsToSet;
@@ -38,4 +44,14 @@ abstract class AbstractPointer implements Pointer {
         this.pointsToSet = pointsToSet;
     }
 
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
 }
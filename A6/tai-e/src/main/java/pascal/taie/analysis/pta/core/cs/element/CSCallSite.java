@@ -47,6 +47,11 @@ public class CSCallSite extends AbstractCSElement {
      */
     private final Set<Edge<CSCallSite, CSMethod>> edges = Sets.newHybridSet();
 
+    /**
+     * Callees of {@link #edges}, which index the edges by their callees.
+     */
+    private final Set<CSMethod> callees = Sets.newHybridSet();
+
     CSCallSite(Invoke callSite, Context context) {
         super(context);
         this.callSite = callSite;
@@ -69,7 +74,18 @@ public class CSCallSite extends AbstractCSElement {
     }
 
     public boolean addEdge(Edge<CSCallSite, CSMethod> edge) {
-        return edges.add(edge);
+        if (edges.add(edge)) {
+            callees.add(edge.getCallee());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if this call site has a call edge to given callee.
+     */
+    public boolean hasCallee(CSMethod callee) {
+        return callees.contains(callee);
     }
 
     public Set<Edge<CSCallSite, CSMethod>> getEdges() {
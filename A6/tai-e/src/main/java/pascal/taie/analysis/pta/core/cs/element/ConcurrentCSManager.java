@@ -0,0 +1,191 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.element;
+
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * {@link CSManager} which can be accessed by multiple threads.
+ * <p>
+ * Elements are interned in concurrent maps. A lookup of an existing
+ * element takes no lock; when two threads create the same element at
+ * the same time, both of them obtain the one which is published first.
+ * The pointers hold points-to sets which can be updated by multiple threads.
+ */
+public class ConcurrentCSManager implements CSManager {
+
+    private final ConcurrentMap<Var, ConcurrentMap<Context, CSVar>> vars
+            = Maps.newConcurrentMap();
+
+    private final ConcurrentMap<Obj, ConcurrentMap<Context, CSObj>> objs
+            = Maps.newConcurrentMap();
+
+    private final ConcurrentMap<Invoke, ConcurrentMap<Context, CSCallSite>> callSites
+            = Maps.newConcurrentMap();
+
+    private final ConcurrentMap<JMethod, ConcurrentMap<Context, CSMethod>> methods
+            = Maps.newConcurrentMap();
+
+    private final ConcurrentMap<JField, StaticField> staticFields
+            = Maps.newConcurrentMap();
+
+    private final ConcurrentMap<CSObj, ConcurrentMap<JField, InstanceField>> instanceFields
+            = Maps.newConcurrentMap();
+
+    private final ConcurrentMap<CSObj, ArrayIndex> arrayIndexes
+            = Maps.newConcurrentMap();
+
+    @Override
+    public CSVar getCSVar(Context context, Var var) {
+        return intern(getContextMap(vars, var), context,
+                c -> initializePointsToSet(new CSVar(var, c)));
+    }
+
+    @Override
+    public CSObj getCSObj(Context heapContext, Obj obj) {
+        return intern(getContextMap(objs, obj), heapContext,
+                c -> new CSObj(obj, c));
+    }
+
+    @Override
+    public CSCallSite getCSCallSite(Context context, Invoke callSite) {
+        return intern(getContextMap(callSites, callSite), context,
+                c -> new CSCallSite(callSite, c));
+    }
+
+    @Override
+    public CSMethod getCSMethod(Context context, JMethod method) {
+        return intern(getContextMap(methods, method), context,
+                c -> new CSMethod(method, c));
+    }
+
+    @Override
+    public StaticField getStaticField(JField field) {
+        return intern(staticFields, field,
+                f -> initializePointsToSet(new StaticField(f)));
+    }
+
+    @Override
+    public InstanceField getInstanceField(CSObj base, JField field) {
+        return intern(getContextMap(instanceFields, base), field,
+                f -> initializePointsToSet(new InstanceField(base, f)));
+    }
+
+    @Override
+    public ArrayIndex getArrayIndex(CSObj array) {
+        return intern(arrayIndexes, array,
+                a -> initializePointsToSet(new ArrayIndex(a)));
+    }
+
+    private static <K, K2, V> ConcurrentMap<K2, V> getContextMap(
+            ConcurrentMap<K, ConcurrentMap<K2, V>> map, K key) {
+        return intern(map, key, k -> Maps.newConcurrentMap());
+    }
+
+    /**
+     * @return the value of key in map. If key is absent, the value is
+     * created by factory, which may be called by more than one thread,
+     * but only the first published value is returned.
+     */
+    private static <K, V> V intern(ConcurrentMap<K, V> map, K key,
+                                   Function<K, V> factory) {
+        V value = map.get(key);
+        if (value == null) {
+            V newValue = factory.apply(key);
+            value = map.putIfAbsent(key, newValue);
+            if (value == null) {
+                value = newValue;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Initializes the points-to set of a newly created pointer.
+     */
+    private static <P extends Pointer> P initializePointsToSet(P pointer) {
+        pointer.setPointsToSet(PointsToSetFactory.makeConcurrent());
+        return pointer;
+    }
+
+    @Override
+    public Collection<Var> getVars() {
+        return Collections.unmodifiableSet(vars.keySet());
+    }
+
+    @Override
+    public Collection<CSVar> getCSVarsOf(Var var) {
+        Map<Context, CSVar> csVars = vars.get(var);
+        return csVars != null
+                ? Collections.unmodifiableCollection(csVars.values())
+                : List.of();
+    }
+
+    @Override
+    public Collection<CSVar> getCSVars() {
+        return flatten(vars.values());
+    }
+
+    @Override
+    public Collection<CSObj> getObjects() {
+        return flatten(objs.values());
+    }
+
+    @Override
+    public Collection<StaticField> getStaticFields() {
+        return Collections.unmodifiableCollection(staticFields.values());
+    }
+
+    @Override
+    public Collection<InstanceField> getInstanceFields() {
+        return flatten(instanceFields.values());
+    }
+
+    @Override
+    public Collection<ArrayIndex> getArrayIndexes() {
+        return Collections.unmodifiableCollection(arrayIndexes.values());
+    }
+
+    /**
+     * @return a snapshot of all values of the inner maps.
+     */
+    private static <V> Collection<V> flatten(Collection<? extends Map<?, V>> maps) {
+        return maps.stream()
+                .flatMap(m -> m.values().stream())
+                .toList();
+    }
+}
@@ -45,4 +45,16 @@ public interface Pointer {
      * @return the type of this pointer
      */
     Type getType();
+
+    /**
+     * @return the index of this pointer in the pointer flow graph,
+     * or -1 if it has not been added to the graph.
+     * A pointer belongs to at most one pointer flow graph.
+     */
+    int getIndex();
+
+    /**
+     * Sets the index of this pointer in the pointer flow graph.
+     */
+    void setIndex(int index);
 }
@@ -0,0 +1,44 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.element;
+
+import pascal.taie.analysis.pta.pts.PointsToSetPool;
+
+/**
+ * {@link ArrayBasedCSManager} whose pointers hold the points-to sets
+ * of a {@link PointsToSetPool}, so that identical points-to sets are shared.
+ */
+public class SharedPointsToSetCSManager extends ArrayBasedCSManager {
+
+    private final PointsToSetPool pool;
+
+    public SharedPointsToSetCSManager(PointsToSetPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    protected <P extends Pointer> P initializePointsToSet(P pointer) {
+        pointer.setPointsToSet(pool.make());
+        return pointer;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.selector;
+
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
+import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+
+/**
+ * Implementation of k-limited context sensitivity, e.g., k-call-site,
+ * k-object and k-type sensitivity, whose method contexts consist of at
+ * most k elements and heap contexts consist of at most hk elements.
+ * <p>
+ * The selected contexts only depend on the call site (call-site
+ * sensitivity), the receiver object (object and type sensitivity), or
+ * the method containing the allocation site (heap contexts). Thus, they
+ * are memoized on these elements, and repeated calls on them return
+ * the same contexts without computing them again. The memoized
+ * contexts can be accessed by multiple threads.
+ */
+public class KLimitedSelector implements ContextSelector {
+
+    /**
+     * Kinds of context elements.
+     */
+    public enum Kind {
+        CALL, OBJ, TYPE
+    }
+
+    private final Kind kind;
+
+    /**
+     * Limit of method context length.
+     */
+    private final int k;
+
+    /**
+     * Limit of heap context length.
+     */
+    private final int hk;
+
+    /**
+     * Map from a call site or a receiver object to its callee context.
+     */
+    private final Map<Object, Context> contexts = Maps.newConcurrentMap();
+
+    /**
+     * Map from a method to the heap context of its allocated objects.
+     */
+    private final Map<CSMethod, Context> heapContexts = Maps.newConcurrentMap();
+
+    public KLimitedSelector(Kind kind, int k, int hk) {
+        this.kind = kind;
+        this.k = k;
+        this.hk = hk;
+    }
+
+    @Override
+    public Context getEmptyContext() {
+        return TrieContext.make();
+    }
+
+    @Override
+    public Context selectContext(CSCallSite callSite, JMethod callee) {
+        if (kind == Kind.CALL) {
+            return contexts.computeIfAbsent(callSite, cs -> TrieContext.append(
+                    callSite.getContext(), callSite.getCallSite(), k));
+        }
+        // static methods inherit the contexts of their callers
+        return callSite.getContext();
+    }
+
+    @Override
+    public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
+        return switch (kind) {
+            case CALL -> selectContext(callSite, callee);
+            case OBJ -> contexts.computeIfAbsent(recv, o -> TrieContext.append(
+                    recv.getContext(), recv.getObject(), k));
+            case TYPE -> contexts.computeIfAbsent(recv, o -> TrieContext.append(
+                    recv.getContext(), recv.getObject().getContainerType(), k));
+        };
+    }
+
+    @Override
+    public Context selectHeapContext(CSMethod method, Obj obj) {
+        return heapContexts.computeIfAbsent(method,
+                m -> TrieContext.makeLastK(method.getContext(), hk));
+    }
+
+    @Override
+    public String toString() {
+        return k + "-" + kind.name().toLowerCase() + "+" + hk + "h";
+    }
+}
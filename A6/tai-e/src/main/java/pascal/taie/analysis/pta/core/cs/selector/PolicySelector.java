@@ -0,0 +1,166 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.selector;
+
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.Globs;
+import pascal.taie.util.collection.Maps;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Context selector which applies different context sensitivity variants
+ * to different objects by a policy, e.g., object sensitivity to
+ * containers and type sensitivity to the other objects.
+ * <p>
+ * A policy is a list of rules, and the selector of an object is given
+ * by the first rule that matches the object. The contexts of an instance
+ * call are selected by the selector of its receiver object, and the heap
+ * context of an object is selected by the selector of the object itself.
+ * Static calls inherit the contexts of their callers.
+ */
+public class PolicySelector implements ContextSelector {
+
+    /**
+     * Prefix of the patterns which are matched against the class
+     * containing the allocation site of an object, instead of
+     * the class of the object.
+     */
+    public static final String SITE_PREFIX = "site:";
+
+    /**
+     * Prefix of the names of preset patterns.
+     */
+    public static final String PRESET_PREFIX = "preset:";
+
+    /**
+     * Preset patterns: "containers" matches the collections and maps
+     * of java.util (including their iterators and entries), and
+     * "factories" matches the objects allocated in factories and builders.
+     */
+    private static final Map<String, List<String>> PRESETS = Map.of(
+            "containers", List.of("java.util.*", "java.util.concurrent.*"),
+            "factories", List.of("site:**Factory", "site:**Factory$*",
+                    "site:**Builder", "site:**Builder$*"));
+
+    /**
+     * A rule of a policy.
+     *
+     * @param site     whether the pattern is matched against the class
+     *                 containing the allocation site of an object.
+     * @param pattern  pattern of class names.
+     * @param selector selector for the matched objects.
+     */
+    public record Rule(boolean site, Pattern pattern, ContextSelector selector) {
+
+        /**
+         * Makes a rule of given glob of class names (see {@link Globs}),
+         * which may be prefixed by {@link #SITE_PREFIX}.
+         */
+        public static Rule of(String glob, ContextSelector selector) {
+            boolean site = glob.startsWith(SITE_PREFIX);
+            if (site) {
+                glob = glob.substring(SITE_PREFIX.length()).strip();
+            }
+            return new Rule(site, Globs.compile(glob), selector);
+        }
+
+        private boolean matches(Obj obj) {
+            String name = (site ? obj.getContainerType() : obj.getType()).getName();
+            return pattern.matcher(name).matches();
+        }
+    }
+
+    private final List<Rule> rules;
+
+    /**
+     * Selector for the objects which are not matched by any rule.
+     */
+    private final ContextSelector defaultSelector;
+
+    /**
+     * Map from an object to its selector, which can be accessed
+     * by multiple threads.
+     */
+    private final Map<Obj, ContextSelector> selectors = Maps.newConcurrentMap();
+
+    public PolicySelector(List<Rule> rules, ContextSelector defaultSelector) {
+        this.rules = List.copyOf(rules);
+        this.defaultSelector = defaultSelector;
+    }
+
+    /**
+     * @return the globs of given preset, or the glob itself if it
+     * is not prefixed by {@link #PRESET_PREFIX}.
+     * @throws IllegalArgumentException if the preset does not exist.
+     */
+    public static List<String> expand(String glob) {
+        if (!glob.startsWith(PRESET_PREFIX)) {
+            return List.of(glob);
+        }
+        String preset = glob.substring(PRESET_PREFIX.length()).strip();
+        List<String> globs = PRESETS.get(preset);
+        if (globs == null) {
+            throw new IllegalArgumentException("Unknown preset: " + preset);
+        }
+        return globs;
+    }
+
+    private ContextSelector getSelector(Obj obj) {
+        return selectors.computeIfAbsent(obj, o -> {
+            for (Rule rule : rules) {
+                if (rule.matches(o)) {
+                    return rule.selector();
+                }
+            }
+            return defaultSelector;
+        });
+    }
+
+    @Override
+    public Context getEmptyContext() {
+        return defaultSelector.getEmptyContext();
+    }
+
+    @Override
+    public Context selectContext(CSCallSite callSite, JMethod callee) {
+        return callSite.getContext();
+    }
+
+    @Override
+    public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
+        return getSelector(recv.getObject()).selectContext(callSite, recv, callee);
+    }
+
+    @Override
+    public Context selectHeapContext(CSMethod method, Obj obj) {
+        return getSelector(obj).selectHeapContext(method, obj);
+    }
+}
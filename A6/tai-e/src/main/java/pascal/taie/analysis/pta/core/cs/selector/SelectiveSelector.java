@@ -23,53 +23,60 @@
 package pascal.taie.analysis.pta.core.cs.selector;
 
 import pascal.taie.analysis.pta.core.cs.context.Context;
-import pascal.taie.analysis.pta.core.cs.context.ListContext;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
 import pascal.taie.analysis.pta.core.heap.Obj;
-import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.language.classes.JMethod;
 
-import javax.swing.text.html.HTMLEditorKit;
+import java.util.Map;
 
 /**
- * Implementation of 2-call-site sensitivity.
+ * Context selector which applies different context sensitivity variants
+ * to different methods, e.g., as selected by Scaler.
+ * The contexts of a method are selected by the selector of the method,
+ * and the heap contexts of objects are selected by the selector of
+ * their container methods.
  */
-public class _2CallSelector implements ContextSelector {
+public class SelectiveSelector implements ContextSelector {
+
+    /**
+     * Map from each method to the selector for the method.
+     */
+    private final Map<JMethod, ContextSelector> selectors;
+
+    /**
+     * Selector for the methods that are absent from {@link #selectors}.
+     */
+    private final ContextSelector defaultSelector;
+
+    public SelectiveSelector(Map<JMethod, ContextSelector> selectors,
+                             ContextSelector defaultSelector) {
+        this.selectors = selectors;
+        this.defaultSelector = defaultSelector;
+    }
+
+    private ContextSelector getSelector(JMethod method) {
+        return selectors.getOrDefault(method, defaultSelector);
+    }
 
     @Override
     public Context getEmptyContext() {
-        return ListContext.make();
+        return defaultSelector.getEmptyContext();
     }
 
     @Override
     public Context selectContext(CSCallSite callSite, JMethod callee) {
-        // TODO - finish me
-        int n = callSite.getContext().getLength();
-        if (n == 0)
-            return ListContext.make(callSite.getCallSite());
-        else
-            return ListContext.make(callSite.getContext().getElementAt(n - 1), callSite.getCallSite());
+        return getSelector(callee).selectContext(callSite, callee);
     }
 
     @Override
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
-        // TODO - finish me
-        int n = callSite.getContext().getLength();
-        if (n == 0)
-            return ListContext.make(callSite.getCallSite());
-        else
-            return ListContext.make(callSite.getContext().getElementAt(n - 1), callSite.getCallSite());
+        return getSelector(callee).selectContext(callSite, recv, callee);
     }
 
     @Override
     public Context selectHeapContext(CSMethod method, Obj obj) {
-        // TODO - finish me
-        int n = method.getContext().getLength();
-        if (n == 0)
-            return ListContext.make();
-        else
-            return ListContext.make(method.getContext().getElementAt(n - 1));
+        return getSelector(method.getMethod()).selectHeapContext(method, obj);
     }
 }
@@ -23,7 +23,7 @@
 package pascal.taie.analysis.pta.core.cs.selector;
 
 import pascal.taie.analysis.pta.core.cs.context.Context;
-import pascal.taie.analysis.pta.core.cs.context.ListContext;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
@@ -31,30 +31,41 @@ import pascal.taie.analysis.pta.core.heap.Obj;
 import pascal.taie.language.classes.JMethod;
 
 /**
- * Implementation of 1-call-site sensitivity.
+ * Context selector which keeps at most the last k elements of the
+ * method contexts selected by another selector, e.g., to reduce the
+ * context depth of the methods that have too many contexts.
+ * With k = 0, the methods are analyzed context-insensitively.
+ * The heap contexts are selected by the other selector from the
+ * truncated method contexts.
  */
-public class _1CallSelector implements ContextSelector {
+public class TruncatedSelector implements ContextSelector {
+
+    private final ContextSelector delegate;
+
+    private final int k;
+
+    public TruncatedSelector(ContextSelector delegate, int k) {
+        this.delegate = delegate;
+        this.k = k;
+    }
 
     @Override
     public Context getEmptyContext() {
-        return ListContext.make();
+        return delegate.getEmptyContext();
     }
 
     @Override
     public Context selectContext(CSCallSite callSite, JMethod callee) {
-        // TODO - finish me
-        return ListContext.make(callSite.getCallSite());
+        return TrieContext.makeLastK(delegate.selectContext(callSite, callee), k);
     }
 
     @Override
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
-        // TODO - finish me
-        return ListContext.make(callSite.getCallSite());
+        return TrieContext.makeLastK(delegate.selectContext(callSite, recv, callee), k);
     }
 
     @Override
     public Context selectHeapContext(CSMethod method, Obj obj) {
-        // TODO - finish me
-        return ListContext.make();
+        return delegate.selectHeapContext(method, obj);
     }
 }
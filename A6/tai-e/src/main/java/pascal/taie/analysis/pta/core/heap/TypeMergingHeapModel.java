@@ -0,0 +1,163 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.heap;
+
+import pascal.taie.World;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.NewExp;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.Globs;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Allocation-site based heap model which additionally merges all
+ * allocation sites of a type into one {@link MergedObj}, if the type
+ * matches a glob of option "merge-types" (e.g., "java.util.*", or "**"
+ * to merge all types), or is allocated at more than N sites in
+ * application code, where N is given by option "merge-type-threshold".
+ */
+public class TypeMergingHeapModel extends AllocationSiteBasedModel {
+
+    private final List<Pattern> patterns;
+
+    /**
+     * Types allocated at more than threshold sites in application code.
+     */
+    private final Set<Type> crowdedTypes;
+
+    /**
+     * Memo of whether each type is merged.
+     */
+    private final Map<Type, Boolean> mergedTypes = Maps.newConcurrentMap();
+
+    /**
+     * Allocation sites represented by merged objects.
+     */
+    private final Set<New> mergedSites = Sets.newConcurrentSet();
+
+    public TypeMergingHeapModel(AnalysisOptions options) {
+        super(options);
+        patterns = getGlobs(options).stream()
+                .map(Globs::compile)
+                .toList();
+        int threshold = options.get("merge-type-threshold") != null
+                ? options.getInt("merge-type-threshold") : 0;
+        crowdedTypes = threshold > 0 ? countSites(threshold) : Set.of();
+    }
+
+    /**
+     * @return whether the given options enable merging by type.
+     */
+    public static boolean isEnabled(AnalysisOptions options) {
+        return !getGlobs(options).isEmpty() ||
+                (options.get("merge-type-threshold") != null &&
+                        options.getInt("merge-type-threshold") > 0);
+    }
+
+    private static List<String> getGlobs(AnalysisOptions options) {
+        Object value = options.get("merge-types");
+        List<?> entries = value instanceof List<?> list ? list
+                : value != null ? List.of(value) : List.of();
+        return entries.stream()
+                .map(entry -> {
+                    if (!(entry instanceof String glob) || glob.isBlank()) {
+                        throw new ConfigException("Invalid glob of merge-types: " + entry);
+                    }
+                    return glob.strip();
+                })
+                .toList();
+    }
+
+    /**
+     * @return the types which are allocated at more than threshold sites
+     * in the concrete methods of application classes.
+     */
+    private static Set<Type> countSites(int threshold) {
+        Map<Type, Integer> counts = Maps.newMap();
+        World.get().getClassHierarchy()
+                .applicationClasses()
+                .flatMap(c -> c.getDeclaredMethods().stream())
+                .filter(m -> !m.isAbstract() && !m.isNative())
+                .map(JMethod::getIR)
+                .flatMap(IR::stmts)
+                .forEach(stmt -> {
+                    if (stmt instanceof New allocSite) {
+                        counts.merge(allocSite.getRValue().getType(), 1, Integer::sum);
+                    }
+                });
+        Set<Type> types = Sets.newSet();
+        counts.forEach((type, count) -> {
+            if (count > threshold) {
+                types.add(type);
+            }
+        });
+        return types;
+    }
+
+    @Override
+    protected Obj doGetObj(New allocSite) {
+        Type type = allocSite.getRValue().getType();
+        if (mergedTypes.computeIfAbsent(type, this::isMerged)) {
+            mergedSites.add(allocSite);
+            return getMergedObj(allocSite);
+        }
+        return super.doGetObj(allocSite);
+    }
+
+    private boolean isMerged(Type type) {
+        if (crowdedTypes.contains(type)) {
+            return true;
+        }
+        String name = type.getName();
+        return patterns.stream().anyMatch(p -> p.matcher(name).matches());
+    }
+
+    /**
+     * @return number of allocation sites represented by merged objects.
+     */
+    public int getMergedSites() {
+        return mergedSites.size();
+    }
+
+    /**
+     * @return number of merged objects, i.e., number of types
+     * whose allocation sites have been merged.
+     */
+    public int getMergedObjs() {
+        return (int) mergedSites.stream()
+                .map(New::getRValue)
+                .map(NewExp::getType)
+                .distinct()
+                .count();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.cs;
+
+import pascal.taie.config.AnalysisOptions;
+
+/**
+ * Wall-clock time and heap budgets of pointer analysis.
+ * A budget of 0 (the default) is unlimited.
+ * <p>
+ * Once a budget is exceeded and the analysis degrades, the budget is
+ * re-armed by {@link #rearm()}, so that the analysis degrades again only
+ * if it still exceeds the budget after a grace period, instead of at
+ * every check until it becomes fully context-insensitive.
+ * <p>
+ * The grace period is 25% of the budget and never extends past the
+ * budget plus one grace period, i.e., the analysis degrades at every
+ * check once it runs longer than 125% of the time budget, or uses more
+ * than 125% of the heap budget.
+ */
+class Budget {
+
+    /**
+     * Fraction of each budget granted as the grace period after
+     * a degradation.
+     */
+    private static final double GRACE_RATIO = 0.25;
+
+    private final long timeLimitMillis;
+
+    private final long heapLimitBytes;
+
+    /**
+     * Time (in milliseconds) after which the time budget is exceeded
+     * for the first time.
+     */
+    private final long initialDeadline;
+
+    /**
+     * Time (in milliseconds) after which the time budget is exceeded.
+     */
+    private long deadline;
+
+    /**
+     * Used heap (in bytes) beyond which the heap budget is exceeded.
+     */
+    private long heapThreshold;
+
+    /**
+     * Reads the budgets from options "time-budget" (in seconds)
+     * and "heap-budget" (in MB).
+     */
+    Budget(AnalysisOptions options) {
+        timeLimitMillis = getLong(options, "time-budget") * 1000;
+        heapLimitBytes = getLong(options, "heap-budget") * 1024 * 1024;
+        initialDeadline = System.currentTimeMillis() + timeLimitMillis;
+        deadline = initialDeadline;
+        heapThreshold = heapLimitBytes;
+    }
+
+    private static long getLong(AnalysisOptions options, String key) {
+        return options.get(key) != null ? options.getInt(key) : 0;
+    }
+
+    /**
+     * @return true if any budget is set.
+     */
+    boolean isLimited() {
+        return timeLimitMillis > 0 || heapLimitBytes > 0;
+    }
+
+    /**
+     * @return a description of the exceeded budget, or null if
+     * no budget is exceeded.
+     */
+    String checkExceeded() {
+        if (timeLimitMillis > 0 && System.currentTimeMillis() > deadline) {
+            return String.format("time budget (%ds)", timeLimitMillis / 1000);
+        }
+        if (heapLimitBytes > 0 && usedHeap() > heapThreshold) {
+            return String.format("heap budget (%dMB)", heapLimitBytes / 1024 / 1024);
+        }
+        return null;
+    }
+
+    /**
+     * Re-arms the budgets after a degradation: the time budget is exceeded
+     * again after a fresh time window, and the heap budget after the used
+     * heap grows further, both by {@link #GRACE_RATIO} of the budget.
+     * Neither goes beyond the budget plus one grace period.
+     */
+    void rearm() {
+        if (timeLimitMillis > 0) {
+            deadline = Math.min(System.currentTimeMillis(), initialDeadline)
+                    + (long) (timeLimitMillis * GRACE_RATIO);
+        }
+        if (heapLimitBytes > 0) {
+            heapThreshold = Math.min(usedHeap(), heapLimitBytes)
+                    + (long) (heapLimitBytes * GRACE_RATIO);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -22,27 +22,61 @@
 
 package pascal.taie.analysis.pta.cs;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
 import pascal.taie.analysis.pta.core.cs.selector.CISelector;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
+import pascal.taie.analysis.pta.core.cs.selector.KLimitedSelector;
+import pascal.taie.analysis.pta.core.cs.selector.PolicySelector;
+import pascal.taie.analysis.pta.core.cs.selector.SelectiveSelector;
 import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.TypeMergingHeapModel;
 import pascal.taie.analysis.pta.plugin.ResultProcessor;
+import pascal.taie.analysis.pta.toolkit.scaler.Scaler;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.config.AnalysisOptions;
 import pascal.taie.config.ConfigException;
-import pascal.taie.util.Strings;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Context-sensitive pointer analysis.
  */
 public class CSPTA extends ProgramAnalysis {
 
+    private static final Logger logger = LogManager.getLogger(CSPTA.class);
+
     public static final String ID = "cspta";
 
+    /**
+     * Pattern of k-limited context sensitivity variants, i.e., k-kind
+     * where k is limit of context length and kind represents kind of
+     * context element (call, obj or type), optionally followed by +hkh
+     * where hk is limit of heap context length (k - 1 by default),
+     * e.g., 2-obj and 3-obj+2h.
+     */
+    private static final Pattern K_LIMITED = Pattern.compile(
+            "(\\d+)-(call|obj|type)(\\+(\\d+)h)?");
+
+    /**
+     * Options of the main analysis which also apply to the pre-analysis
+     * of Scaler, i.e., the options on how the solver propagates objects.
+     */
+    private static final List<String> PRE_ANALYSIS_OPTIONS = List.of(
+            "solver", "collapse-cycles", "share-points-to-sets",
+            "type-filter", "prune-primitives");
+
     public CSPTA(AnalysisConfig config) {
         super(config);
     }
@@ -50,38 +84,166 @@ public class CSPTA extends ProgramAnalysis {
     @Override
     public PointerAnalysisResult analyze() {
         AnalysisOptions options = getOptions();
-        Solver solver = new Solver(options,
-                new AllocationSiteBasedModel(options),
-                getContextSelector(options.getString("cs")));
-        solver.solve();
-        PointerAnalysisResult result = solver.getResult();
+        if ("parallel".equals(options.getString("solver"))) {
+            checkParallelOptions(options);
+        }
+        // contexts of the previous analyses are not needed any more, and
+        // the pre-analysis of Scaler below shares the trie with this analysis
+        TrieContext.reset();
+        HeapModel heapModel = TypeMergingHeapModel.isEnabled(options)
+                ? new TypeMergingHeapModel(options)
+                : new AllocationSiteBasedModel(options);
+        String cs = options.getString("cs");
+        ContextSelector selector = switch (cs) {
+            case "scaler" -> getScalerSelector(options, heapModel);
+            case "hybrid" -> getHybridSelector(options);
+            default -> getContextSelector(cs);
+        };
+        PointerAnalysisResult result;
+        if ("parallel".equals(options.getString("solver"))) {
+            ParallelSolver solver = new ParallelSolver(heapModel, selector,
+                    getThreads(options),
+                    options.getBooleanOrDefault("type-filter", false),
+                    options.getBooleanOrDefault("prune-primitives", false));
+            solver.solve();
+            result = solver.getResult();
+        } else {
+            Solver solver = new Solver(options, heapModel, selector);
+            solver.solve();
+            result = solver.getResult();
+        }
+        if (heapModel instanceof TypeMergingHeapModel) {
+            result.storeResult(TypeMergingHeapModel.class.getName(), heapModel);
+        }
         ResultProcessor.process(options, result);
         return result;
     }
 
+    /**
+     * @return the options of the pre-analysis of Scaler, which only keep
+     * {@link #PRE_ANALYSIS_OPTIONS} of given options. In particular, the
+     * pre-analysis neither reads nor writes the checkpoint of the main
+     * analysis, and it is not limited by budgets or context threshold.
+     */
+    private static AnalysisOptions getPreAnalysisOptions(AnalysisOptions options) {
+        Map<String, Object> preOptions = Maps.newMap();
+        for (String key : PRE_ANALYSIS_OPTIONS) {
+            Object value = options.get(key);
+            if (value != null) {
+                preOptions.put(key, value);
+            }
+        }
+        return new AnalysisOptions(preOptions);
+    }
+
+    /**
+     * Runs a context-insensitive pre-analysis, and selects the context
+     * sensitivity variant of each method by Scaler within the total
+     * scalability threshold given by option "tst".
+     */
+    private static ContextSelector getScalerSelector(
+            AnalysisOptions options, HeapModel heapModel) {
+        logger.info("Running context-insensitive pre-analysis for Scaler");
+        Solver preSolver = new Solver(getPreAnalysisOptions(options),
+                heapModel, new CISelector());
+        preSolver.solve();
+        PointerAnalysisResult preResult = preSolver.getResult();
+        Scaler scaler = options.get("tst") != null
+                ? new Scaler(preResult, options.getInt("tst"))
+                : new Scaler(preResult);
+        // selectors only depend on their variants, thus are shared by
+        // the methods of same variant
+        Map<String, ContextSelector> variantSelectors = Maps.newMap();
+        Map<JMethod, ContextSelector> selectors = Maps.newMap();
+        scaler.selectContext().forEach((method, variant) ->
+                selectors.put(method, variantSelectors.computeIfAbsent(
+                        variant, CSPTA::getContextSelector)));
+        return new SelectiveSelector(selectors, new CISelector());
+    }
+
+    /**
+     * Makes the selector of the context sensitivity variants given by
+     * option "hybrid-policy", a list of rules "pattern=variant", e.g.,
+     * "preset:containers=2-obj", "site:**Factory=2-obj" and "**=1-type".
+     * The objects matched by no rule are analyzed context-insensitively.
+     *
+     * @see PolicySelector
+     */
+    private static ContextSelector getHybridSelector(AnalysisOptions options) {
+        Map<String, ContextSelector> variantSelectors = Maps.newMap();
+        List<PolicySelector.Rule> rules = new ArrayList<>();
+        Object value = options.get("hybrid-policy");
+        List<?> entries = value instanceof List<?> list ? list
+                : value != null ? List.of(value) : List.of();
+        for (Object entry : entries) {
+            String rule = entry.toString();
+            int i = rule.lastIndexOf('=');
+            if (i < 0) {
+                throw new ConfigException("Invalid rule of hybrid-policy: " + rule);
+            }
+            ContextSelector selector = variantSelectors.computeIfAbsent(
+                    rule.substring(i + 1).strip(), CSPTA::getContextSelector);
+            try {
+                PolicySelector.expand(rule.substring(0, i).strip())
+                        .forEach(glob -> rules.add(PolicySelector.Rule.of(glob, selector)));
+            } catch (IllegalArgumentException e) {
+                throw new ConfigException(e.getMessage() + " in hybrid-policy");
+            }
+        }
+        return new PolicySelector(rules, new CISelector());
+    }
+
+    /**
+     * Rejects the options which are not supported by parallel solver.
+     */
+    private static void checkParallelOptions(AnalysisOptions options) {
+        List<String> unsupported = new ArrayList<>();
+        for (String option : List.of("collapse-cycles", "share-points-to-sets", "resume")) {
+            if (options.getBooleanOrDefault(option, false)) {
+                unsupported.add(option);
+            }
+        }
+        for (String option : List.of("time-budget", "heap-budget", "context-threshold")) {
+            if (options.get(option) != null && options.getInt(option) > 0) {
+                unsupported.add(option);
+            }
+        }
+        if (options.getString("checkpoint") != null) {
+            unsupported.add("checkpoint");
+        }
+        Object changedMethods = options.get("changed-methods");
+        if (changedMethods instanceof Collection<?> methods
+                ? !methods.isEmpty() : changedMethods != null) {
+            unsupported.add("changed-methods");
+        }
+        if (!unsupported.isEmpty()) {
+            throw new ConfigException("Option " + String.join(", ", unsupported) +
+                    " is not supported by parallel solver");
+        }
+    }
+
+    /**
+     * @return the number of threads used by parallel solver. If option
+     * "threads" is not given or non-positive, then uses all available processors.
+     */
+    private static int getThreads(AnalysisOptions options) {
+        int threads = options.get("threads") != null ? options.getInt("threads") : 0;
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
     private static ContextSelector getContextSelector(String cs) {
         if (cs.equals("ci")) {
             return new CISelector();
-        } else {
-            try {
-                // we expect that the argument of context-sensitivity variant
-                // is of pattern k-kind, where k is limit of context length
-                // and kind represents kind of context element (obj, type, etc.).
-                String[] splits = cs.split("-");
-                String k = splits[0];
-                String kind = Strings.capitalize(splits[1]);
-                String selectorName = "pascal.taie.analysis.pta.core.cs.selector." +
-                        "_" + k + kind + "Selector";
-                Class<?> c = Class.forName(selectorName);
-                Constructor<?> ctor = c.getConstructor();
-                return (ContextSelector) ctor.newInstance();
-            } catch (RuntimeException e) {
-                throw new ConfigException("Unexpected context-sensitivity variants: " + cs, e);
-            } catch (ClassNotFoundException | NoSuchMethodException |
-                    InvocationTargetException | InstantiationException |
-                    IllegalAccessException e) {
-                throw new ConfigException("Failed to initialize context selector: " + cs, e);
-            }
         }
+        Matcher matcher = K_LIMITED.matcher(cs);
+        if (!matcher.matches()) {
+            throw new ConfigException("Unexpected context-sensitivity variants: " + cs);
+        }
+        int k = Integer.parseInt(matcher.group(1));
+        KLimitedSelector.Kind kind = KLimitedSelector.Kind.valueOf(
+                matcher.group(2).toUpperCase());
+        int hk = matcher.group(4) != null
+                ? Integer.parseInt(matcher.group(4)) : Math.max(0, k - 1);
+        return new KLimitedSelector(kind, k, hk);
     }
 }
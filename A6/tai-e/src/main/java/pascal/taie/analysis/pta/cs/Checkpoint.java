@@ -0,0 +1,828 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.cs;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.pta.core.cs.CSCallGraph;
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
+import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
+import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
+import pascal.taie.analysis.pta.core.cs.element.CSManager;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.cs.element.CSVar;
+import pascal.taie.analysis.pta.core.cs.element.InstanceField;
+import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.analysis.pta.core.cs.element.StaticField;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.pts.PointsToSet;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checkpoint of context-sensitive pointer analysis.
+ * <p>
+ * A checkpoint consists of the points-to sets of the pointers, together
+ * with the PFG edges and call edges, which are only used to resume
+ * incrementally (see below). The other states of the solver (reachable
+ * methods, call graph, PFG and pending work-list entries) are derived from
+ * the points-to sets: on resume, the solver restores the points-to sets
+ * before processing any method, and then re-derives the other states by
+ * processing the entry method and the objects of restored variables,
+ * during which every restored object is propagated along the re-derived
+ * PFG edges. As all restored objects belong to the least fixed point,
+ * the resumed analysis reaches the same result as an uninterrupted run
+ * of the same program with the same options.
+ * <p>
+ * If the program has been changed since the checkpoint was written, the
+ * changed methods are given to {@link #read}, which resumes incrementally
+ * in the style of DRed (delete and re-derive): it over-deletes every
+ * points-to set which may have been derived from the changed methods,
+ * and restores the others, which are still in the least fixed point of
+ * the changed program. The solver then re-derives the deleted facts and
+ * the facts of added statements as on resume. A points-to set is deleted
+ * if its pointer
+ * <ul>
+ *     <li>refers to a changed method, e.g., it is a variable of a changed
+ *     method, or its context or object is allocated in a changed method;</li>
+ *     <li>is a PFG successor of a deleted pointer;</li>
+ *     <li>is the target of a PFG edge induced by the objects of a deleted
+ *     variable, i.e., the fields and array indexes of the objects stored
+ *     via the variable, and the variables loaded via the variable;</li>
+ *     <li>is a variable of a deleted context-sensitive method.</li>
+ * </ul>
+ * A context-sensitive method is deleted, i.e., its reachability may be
+ * derived from the changed methods, if it is a changed method or the callee
+ * of a call edge which comes from a deleted method, or whose receiver
+ * variable is deleted. As added and deleted methods may change the result
+ * of method dispatch, the callees whose subsignatures equal one of them
+ * are deleted as well. Other changes of class hierarchy are not supported.
+ * <p>
+ * Elements are encoded by stable identifiers, i.e., signatures of methods
+ * and fields, names of types, and indexes of variables and statements in
+ * their methods. Each method, field, type, object, context, context-
+ * sensitive object and pointer is written once, and then referred to by
+ * its index.
+ */
+class Checkpoint {
+
+    private static final Logger logger = LogManager.getLogger(Checkpoint.class);
+
+    private static final int MAGIC = 0x54414945; // "TAIE"
+
+    private static final int VERSION = 2;
+
+    // kinds of context elements
+    private static final byte OBJ = 0;
+
+    private static final byte CALL_SITE = 1;
+
+    private static final byte TYPE = 2;
+
+    // kinds of pointers
+    private static final byte VAR = 0;
+
+    private static final byte STATIC_FIELD = 1;
+
+    private static final byte INSTANCE_FIELD = 2;
+
+    private static final byte ARRAY_INDEX = 3;
+
+    private Checkpoint() {
+    }
+
+    /**
+     * Writes the points-to sets of all non-empty pointers, the PFG edges
+     * and the call edges to given file. The file is replaced atomically,
+     * so that a crash during writing does not destroy the previous checkpoint.
+     *
+     * @param allocations map from each abstract object to one of its
+     *                    allocation sites, by which the object is encoded.
+     */
+    static void write(Path file, CSManager csManager, PointerFlowGraph pfg,
+                      CSCallGraph callGraph, Map<Obj, New> allocations) {
+        // index all elements before writing, as tables precede their uses
+        Encoder encoder = new Encoder(allocations);
+        csManager.getCSVars().forEach(encoder::indexIfNonEmpty);
+        csManager.getStaticFields().forEach(encoder::indexIfNonEmpty);
+        csManager.getInstanceFields().forEach(encoder::indexIfNonEmpty);
+        csManager.getArrayIndexes().forEach(encoder::indexIfNonEmpty);
+        List<Pointer> edges = new ArrayList<>();
+        pfg.forEachEdge((source, target) -> {
+            edges.add(source);
+            edges.add(target);
+        });
+        edges.forEach(encoder::index);
+        List<Edge<CSCallSite, CSMethod>> callEdges = callGraph.edges().toList();
+        callEdges.forEach(encoder::index);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            encoder.writeTables(out);
+            encoder.writePointers(out);
+            out.writeInt(edges.size() / 2);
+            for (Pointer pointer : edges) {
+                encoder.writeIndex(out, pointer);
+            }
+            out.writeInt(callEdges.size());
+            for (Edge<CSCallSite, CSMethod> edge : callEdges) {
+                encoder.writeCallEdge(out, edge);
+            }
+        } catch (IOException e) {
+            throw new AnalysisException("Failed to write checkpoint " + file, e);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new AnalysisException("Failed to write checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * Reads a checkpoint and restores the points-to sets of its pointers.
+     *
+     * @param allocations    receives the allocation sites of restored objects.
+     * @param changedMethods signatures of the methods which are added, deleted
+     *                       or modified since the checkpoint was written.
+     * @return the restored pointers.
+     */
+    static List<Pointer> read(Path file, CSManager csManager, HeapModel heapModel,
+                              Map<Obj, New> allocations, Set<String> changedMethods) {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new AnalysisException(file + " is not a valid checkpoint");
+            }
+            Decoder decoder = new Decoder(csManager, heapModel,
+                    allocations, changedMethods);
+            decoder.readTables(in);
+            decoder.readPointers(in);
+            decoder.readEdges(in);
+            return decoder.restore();
+        } catch (IOException e) {
+            throw new AnalysisException("Failed to read checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * Assigns consecutive indexes to distinct elements.
+     */
+    private static class Indexer<T> {
+
+        private final Map<T, Integer> indexes = Maps.newMap();
+
+        private final List<T> elements = new ArrayList<>();
+
+        void add(T element) {
+            indexes.computeIfAbsent(element, e -> {
+                elements.add(e);
+                return elements.size() - 1;
+            });
+        }
+
+        int indexOf(T element) {
+            return indexes.get(element);
+        }
+
+        List<T> elements() {
+            return elements;
+        }
+    }
+
+    private static class Encoder {
+
+        private final Map<Obj, New> allocations;
+
+        private final Indexer<JMethod> methods = new Indexer<>();
+
+        private final Indexer<JField> fields = new Indexer<>();
+
+        private final Indexer<Type> types = new Indexer<>();
+
+        private final Indexer<Obj> objs = new Indexer<>();
+
+        private final Indexer<Context> contexts = new Indexer<>();
+
+        private final Indexer<CSObj> csObjs = new Indexer<>();
+
+        private final Indexer<Pointer> pointers = new Indexer<>();
+
+        private Encoder(Map<Obj, New> allocations) {
+            this.allocations = allocations;
+        }
+
+        private void indexIfNonEmpty(Pointer pointer) {
+            if (!pointer.getPointsToSet().isEmpty()) {
+                index(pointer);
+            }
+        }
+
+        private void index(Pointer pointer) {
+            if (pointer instanceof CSVar csVar) {
+                index(csVar.getContext());
+                methods.add(csVar.getVar().getMethod());
+            } else if (pointer instanceof StaticField staticField) {
+                fields.add(staticField.getField());
+            } else if (pointer instanceof InstanceField instanceField) {
+                index(instanceField.getBase());
+                fields.add(instanceField.getField());
+            } else if (pointer instanceof ArrayIndex arrayIndex) {
+                index(arrayIndex.getArray());
+            }
+            pointer.getPointsToSet().forEach(this::index);
+            pointers.add(pointer);
+        }
+
+        private void index(Edge<CSCallSite, CSMethod> edge) {
+            CSCallSite csCallSite = edge.getCallSite();
+            index(csCallSite.getContext());
+            methods.add(csCallSite.getCallSite().getContainer());
+            index(edge.getCallee().getContext());
+            methods.add(edge.getCallee().getMethod());
+        }
+
+        private void index(CSObj csObj) {
+            index(csObj.getContext());
+            index(csObj.getObject());
+            csObjs.add(csObj);
+        }
+
+        private void index(Obj obj) {
+            methods.add(getAllocation(obj).getContainer());
+            objs.add(obj);
+        }
+
+        private void index(Context context) {
+            for (int i = 0; i < context.getLength(); ++i) {
+                Object elem = context.getElementAt(i);
+                if (elem instanceof Obj obj) {
+                    index(obj);
+                } else if (elem instanceof Invoke callSite) {
+                    methods.add(callSite.getContainer());
+                } else if (elem instanceof Type type) {
+                    types.add(type);
+                } else {
+                    throw new AnalysisException(
+                            "Unsupported context element in checkpoint: " + elem);
+                }
+            }
+            contexts.add(context);
+        }
+
+        private New getAllocation(Obj obj) {
+            New allocation = allocations.get(obj);
+            if (allocation == null) {
+                throw new AnalysisException(
+                        "Unknown allocation site of " + obj + " in checkpoint");
+            }
+            return allocation;
+        }
+
+        private void writeTables(DataOutputStream out) throws IOException {
+            out.writeInt(methods.elements().size());
+            for (JMethod method : methods.elements()) {
+                out.writeUTF(method.getSignature());
+            }
+            out.writeInt(fields.elements().size());
+            for (JField field : fields.elements()) {
+                out.writeUTF(field.getSignature());
+            }
+            out.writeInt(types.elements().size());
+            for (Type type : types.elements()) {
+                out.writeUTF(type.getName());
+            }
+            out.writeInt(objs.elements().size());
+            for (Obj obj : objs.elements()) {
+                New allocation = getAllocation(obj);
+                out.writeInt(methods.indexOf(allocation.getContainer()));
+                out.writeInt(allocation.getIndex());
+            }
+            out.writeInt(contexts.elements().size());
+            for (Context context : contexts.elements()) {
+                out.writeInt(context.getLength());
+                for (int i = 0; i < context.getLength(); ++i) {
+                    Object elem = context.getElementAt(i);
+                    if (elem instanceof Obj obj) {
+                        out.writeByte(OBJ);
+                        out.writeInt(objs.indexOf(obj));
+                    } else if (elem instanceof Invoke callSite) {
+                        out.writeByte(CALL_SITE);
+                        out.writeInt(methods.indexOf(callSite.getContainer()));
+                        out.writeInt(callSite.getIndex());
+                    } else {
+                        out.writeByte(TYPE);
+                        out.writeInt(types.indexOf((Type) elem));
+                    }
+                }
+            }
+            out.writeInt(csObjs.elements().size());
+            for (CSObj csObj : csObjs.elements()) {
+                out.writeInt(contexts.indexOf(csObj.getContext()));
+                out.writeInt(objs.indexOf(csObj.getObject()));
+            }
+        }
+
+        private void writePointers(DataOutputStream out) throws IOException {
+            out.writeInt(pointers.elements().size());
+            for (Pointer pointer : pointers.elements()) {
+                writePointer(out, pointer);
+            }
+        }
+
+        private void writePointer(DataOutputStream out, Pointer pointer)
+                throws IOException {
+            if (pointer instanceof CSVar csVar) {
+                out.writeByte(VAR);
+                out.writeInt(contexts.indexOf(csVar.getContext()));
+                out.writeInt(methods.indexOf(csVar.getVar().getMethod()));
+                out.writeInt(csVar.getVar().getIndex());
+            } else if (pointer instanceof StaticField staticField) {
+                out.writeByte(STATIC_FIELD);
+                out.writeInt(fields.indexOf(staticField.getField()));
+            } else if (pointer instanceof InstanceField instanceField) {
+                out.writeByte(INSTANCE_FIELD);
+                out.writeInt(csObjs.indexOf(instanceField.getBase()));
+                out.writeInt(fields.indexOf(instanceField.getField()));
+            } else {
+                out.writeByte(ARRAY_INDEX);
+                out.writeInt(csObjs.indexOf(((ArrayIndex) pointer).getArray()));
+            }
+            PointsToSet pts = pointer.getPointsToSet();
+            out.writeInt(pts.size());
+            for (CSObj csObj : pts) {
+                out.writeInt(csObjs.indexOf(csObj));
+            }
+        }
+
+        private void writeIndex(DataOutputStream out, Pointer pointer)
+                throws IOException {
+            out.writeInt(pointers.indexOf(pointer));
+        }
+
+        private void writeCallEdge(DataOutputStream out,
+                                   Edge<CSCallSite, CSMethod> edge) throws IOException {
+            CSCallSite csCallSite = edge.getCallSite();
+            out.writeInt(contexts.indexOf(csCallSite.getContext()));
+            out.writeInt(methods.indexOf(csCallSite.getCallSite().getContainer()));
+            out.writeInt(csCallSite.getCallSite().getIndex());
+            out.writeInt(contexts.indexOf(edge.getCallee().getContext()));
+            out.writeInt(methods.indexOf(edge.getCallee().getMethod()));
+        }
+    }
+
+    /**
+     * Encoded context-sensitive method.
+     */
+    private record MethodKey(int context, int method) {
+    }
+
+    /**
+     * Encoded context-sensitive call site.
+     */
+    private record CallSiteKey(int context, int method, int stmt) {
+    }
+
+    /**
+     * Encoded context-sensitive variable.
+     */
+    private record VarKey(int context, int method, int var) {
+    }
+
+    /**
+     * Encoded instance field.
+     */
+    private record FieldKey(int base, int field) {
+    }
+
+    private static class Decoder {
+
+        private final CSManager csManager;
+
+        private final HeapModel heapModel;
+
+        private final Map<Obj, New> allocations;
+
+        private final Set<String> changedMethods;
+
+        /**
+         * Whether the program has been changed since the checkpoint was
+         * written. If so, the elements which refer to changed code are
+         * decoded as null, i.e., stale, instead of failing.
+         */
+        private final boolean incremental;
+
+        /**
+         * Subsignatures of the added and deleted methods.
+         */
+        private final Set<String> changedSubsignatures = Sets.newSet();
+
+        private final List<JMethod> methods = new ArrayList<>();
+
+        private final List<JField> fields = new ArrayList<>();
+
+        private final Map<JField, Integer> fieldIndexes = Maps.newMap();
+
+        private final List<Type> types = new ArrayList<>();
+
+        private final List<Obj> objs = new ArrayList<>();
+
+        private final List<Context> contexts = new ArrayList<>();
+
+        private final List<CSObj> csObjs = new ArrayList<>();
+
+        // encoded pointers, and their points-to sets as indexes of csObjs
+        private byte[] kinds;
+
+        private int[][] operands;
+
+        private int[][] pointsTo;
+
+        private final Map<VarKey, Integer> varPointers = Maps.newMap();
+
+        private final Map<FieldKey, Integer> fieldPointers = Maps.newMap();
+
+        private final Map<Integer, Integer> arrayPointers = Maps.newMap();
+
+        private final MultiMap<MethodKey, Integer> varPointersOf = Maps.newMultiMap();
+
+        private final MultiMap<Integer, Integer> successors = Maps.newMultiMap();
+
+        private final MultiMap<CallSiteKey, MethodKey> callees = Maps.newMultiMap();
+
+        private final MultiMap<MethodKey, MethodKey> calleesOf = Maps.newMultiMap();
+
+        private Decoder(CSManager csManager, HeapModel heapModel,
+                        Map<Obj, New> allocations, Set<String> changedMethods) {
+            this.csManager = csManager;
+            this.heapModel = heapModel;
+            this.allocations = allocations;
+            this.changedMethods = changedMethods;
+            this.incremental = !changedMethods.isEmpty();
+        }
+
+        private void readTables(DataInputStream in) throws IOException {
+            ClassHierarchy hierarchy = World.get().getClassHierarchy();
+            TypeSystem typeSystem = World.get().getTypeSystem();
+            Set<String> oldMethods = Sets.newSet();
+            for (int i = in.readInt(); i > 0; --i) {
+                String signature = in.readUTF();
+                oldMethods.add(signature);
+                JMethod method = hierarchy.getMethod(signature);
+                if (method == null) { // deleted method
+                    changedSubsignatures.add(getSubsignature(signature));
+                }
+                methods.add(changedMethods.contains(signature) ? null : resolve(method));
+            }
+            // changed methods absent from the checkpoint may be added ones
+            changedMethods.stream()
+                    .filter(signature -> !oldMethods.contains(signature))
+                    .forEach(signature -> changedSubsignatures.add(
+                            getSubsignature(signature)));
+            for (int i = 0, n = in.readInt(); i < n; ++i) {
+                JField field = resolve(hierarchy.getField(in.readUTF()));
+                fields.add(field);
+                if (field != null) {
+                    fieldIndexes.put(field, i);
+                }
+            }
+            for (int i = in.readInt(); i > 0; --i) {
+                types.add(resolve(typeSystem.getType(in.readUTF())));
+            }
+            for (int i = in.readInt(); i > 0; --i) {
+                JMethod container = methods.get(in.readInt());
+                int index = in.readInt();
+                Obj obj = null;
+                if (container != null) {
+                    if (!(getStmt(container, index) instanceof New allocation)) {
+                        throw mismatch(container);
+                    }
+                    obj = heapModel.getObj(allocation);
+                    allocations.putIfAbsent(obj, allocation);
+                }
+                objs.add(obj);
+            }
+            for (int i = in.readInt(); i > 0; --i) {
+                Object[] elems = new Object[in.readInt()];
+                boolean stale = false;
+                for (int j = 0; j < elems.length; ++j) {
+                    elems[j] = switch (in.readByte()) {
+                        case OBJ -> objs.get(in.readInt());
+                        case CALL_SITE -> {
+                            JMethod container = methods.get(in.readInt());
+                            int index = in.readInt();
+                            yield container != null ? getStmt(container, index) : null;
+                        }
+                        case TYPE -> types.get(in.readInt());
+                        default -> throw new AnalysisException(
+                                "Corrupted checkpoint: unknown context element");
+                    };
+                    stale |= elems[j] == null;
+                }
+                contexts.add(stale ? null : TrieContext.make(elems));
+            }
+            for (int i = in.readInt(); i > 0; --i) {
+                Context context = contexts.get(in.readInt());
+                Obj obj = objs.get(in.readInt());
+                csObjs.add(context != null && obj != null
+                        ? csManager.getCSObj(context, obj) : null);
+            }
+        }
+
+        private <T> T resolve(T element) {
+            if (element == null && !incremental) {
+                throw new AnalysisException(
+                        "Checkpoint does not match the analyzed program");
+            }
+            return element;
+        }
+
+        private static Stmt getStmt(JMethod method, int index) {
+            List<Stmt> stmts = method.getIR().getStmts();
+            if (index >= stmts.size()) {
+                throw mismatch(method);
+            }
+            return stmts.get(index);
+        }
+
+        private static AnalysisException mismatch(JMethod method) {
+            return new AnalysisException("Checkpoint does not match " + method
+                    + ", which should be given as a changed method");
+        }
+
+        /**
+         * @return subsignature of the method of given signature,
+         * e.g., "void m()" of "&lt;C: void m()&gt;".
+         */
+        private static String getSubsignature(String signature) {
+            return signature.substring(signature.indexOf(':') + 1,
+                    signature.length() - 1).trim();
+        }
+
+        private void readPointers(DataInputStream in) throws IOException {
+            int n = in.readInt();
+            kinds = new byte[n];
+            operands = new int[n][];
+            pointsTo = new int[n][];
+            for (int i = 0; i < n; ++i) {
+                kinds[i] = in.readByte();
+                operands[i] = switch (kinds[i]) {
+                    case VAR -> new int[]{in.readInt(), in.readInt(), in.readInt()};
+                    case STATIC_FIELD, ARRAY_INDEX -> new int[]{in.readInt()};
+                    case INSTANCE_FIELD -> new int[]{in.readInt(), in.readInt()};
+                    default -> throw new AnalysisException(
+                            "Corrupted checkpoint: unknown pointer kind");
+                };
+                pointsTo[i] = new int[in.readInt()];
+                for (int j = 0; j < pointsTo[i].length; ++j) {
+                    pointsTo[i][j] = in.readInt();
+                }
+                int[] ops = operands[i];
+                switch (kinds[i]) {
+                    case VAR -> {
+                        varPointers.put(new VarKey(ops[0], ops[1], ops[2]), i);
+                        varPointersOf.put(new MethodKey(ops[0], ops[1]), i);
+                    }
+                    case INSTANCE_FIELD -> fieldPointers.put(new FieldKey(ops[0], ops[1]), i);
+                    case ARRAY_INDEX -> arrayPointers.put(ops[0], i);
+                }
+            }
+        }
+
+        private void readEdges(DataInputStream in) throws IOException {
+            for (int i = in.readInt(); i > 0; --i) {
+                successors.put(in.readInt(), in.readInt());
+            }
+            for (int i = in.readInt(); i > 0; --i) {
+                CallSiteKey callSite = new CallSiteKey(
+                        in.readInt(), in.readInt(), in.readInt());
+                MethodKey callee = new MethodKey(in.readInt(), in.readInt());
+                callees.put(callSite, callee);
+                calleesOf.put(new MethodKey(callSite.context(), callSite.method()), callee);
+            }
+        }
+
+        /**
+         * Restores the points-to sets which are not deleted.
+         *
+         * @return the restored non-empty pointers.
+         */
+        private List<Pointer> restore() {
+            boolean[] deleted = incremental ? overDelete() : new boolean[kinds.length];
+            List<Pointer> restored = new ArrayList<>();
+            int nDeleted = 0;
+            for (int i = 0; i < kinds.length; ++i) {
+                if (deleted[i]) {
+                    ++nDeleted;
+                } else if (pointsTo[i].length > 0) {
+                    restored.add(restorePointer(i));
+                }
+            }
+            if (incremental) {
+                logger.info("Deleted {} of {} pointers for {} changed methods",
+                        nDeleted, kinds.length, changedMethods.size());
+            }
+            return restored;
+        }
+
+        private Pointer restorePointer(int i) {
+            int[] ops = operands[i];
+            Pointer pointer = switch (kinds[i]) {
+                case VAR -> csManager.getCSVar(contexts.get(ops[0]),
+                        methods.get(ops[1]).getIR().getVar(ops[2]));
+                case STATIC_FIELD -> csManager.getStaticField(fields.get(ops[0]));
+                case INSTANCE_FIELD -> csManager.getInstanceField(
+                        csObjs.get(ops[0]), fields.get(ops[1]));
+                default -> csManager.getArrayIndex(csObjs.get(ops[0]));
+            };
+            PointsToSet pts = PointsToSetFactory.make();
+            for (int obj : pointsTo[i]) {
+                pts.addObject(csObjs.get(obj));
+            }
+            pointer.getPointsToSet().addAll(pts);
+            return pointer;
+        }
+
+        /**
+         * @return true if the i-th pointer or its points-to set refers to
+         * changed code. The latter is possible even if the pointer is not
+         * derived from the changed methods, as a merged object may be
+         * encoded by its allocation site in a changed method.
+         */
+        private boolean isStale(int i) {
+            int[] ops = operands[i];
+            boolean stale = switch (kinds[i]) {
+                case VAR -> isStale(new MethodKey(ops[0], ops[1]));
+                case STATIC_FIELD -> fields.get(ops[0]) == null;
+                case INSTANCE_FIELD -> csObjs.get(ops[0]) == null
+                        || fields.get(ops[1]) == null;
+                default -> csObjs.get(ops[0]) == null;
+            };
+            for (int obj : pointsTo[i]) {
+                stale |= csObjs.get(obj) == null;
+            }
+            return stale;
+        }
+
+        private boolean isStale(MethodKey csMethod) {
+            return contexts.get(csMethod.context()) == null
+                    || methods.get(csMethod.method()) == null;
+        }
+
+        /**
+         * Over-deletes the points-to sets which may be derived from
+         * the changed methods.
+         *
+         * @return whether the points-to set of each pointer is deleted.
+         */
+        private boolean[] overDelete() {
+            boolean[] deleted = new boolean[kinds.length];
+            Deque<Integer> pointers = new ArrayDeque<>();
+            Set<MethodKey> deletedMethods = Sets.newSet();
+            Deque<MethodKey> csMethods = new ArrayDeque<>();
+            for (int i = 0; i < kinds.length; ++i) {
+                if (isStale(i)) {
+                    delete(i, deleted, pointers);
+                }
+            }
+            callees.forEach((callSite, callee) -> {
+                MethodKey caller = new MethodKey(callSite.context(), callSite.method());
+                if (isStale(caller)) {
+                    delete(caller, deletedMethods, csMethods);
+                }
+                if (isStale(callee) || changedSubsignatures.contains(
+                        methods.get(callee.method()).getSubsignature().toString())) {
+                    delete(callee, deletedMethods, csMethods);
+                }
+            });
+            while (!pointers.isEmpty() || !csMethods.isEmpty()) {
+                while (!csMethods.isEmpty()) {
+                    MethodKey csMethod = csMethods.poll();
+                    varPointersOf.get(csMethod).forEach(p -> delete(p, deleted, pointers));
+                    calleesOf.get(csMethod).forEach(callee ->
+                            delete(callee, deletedMethods, csMethods));
+                }
+                if (!pointers.isEmpty()) {
+                    int p = pointers.poll();
+                    successors.get(p).forEach(succ -> delete(succ, deleted, pointers));
+                    if (kinds[p] == VAR
+                            && !isStale(new MethodKey(operands[p][0], operands[p][1]))) {
+                        deleteInducedBy(p, deleted, pointers, deletedMethods, csMethods);
+                    }
+                }
+            }
+            return deleted;
+        }
+
+        /**
+         * Deletes the targets of the PFG edges and the callees of the call
+         * edges which are induced by the objects of deleted variable p.
+         * As p is a variable of an unchanged method, its statements are
+         * the same as when the checkpoint was written.
+         */
+        private void deleteInducedBy(int p, boolean[] deleted, Deque<Integer> pointers,
+                                     Set<MethodKey> deletedMethods,
+                                     Deque<MethodKey> csMethods) {
+            int[] ops = operands[p];
+            int context = ops[0], method = ops[1];
+            Var var = methods.get(method).getIR().getVar(ops[2]);
+            for (StoreField storeField : var.getStoreFields()) {
+                Integer field = fieldIndexes.get(storeField.getFieldRef().resolve());
+                if (field != null) {
+                    for (int obj : pointsTo[p]) {
+                        delete(fieldPointers.get(new FieldKey(obj, field)), deleted, pointers);
+                    }
+                }
+            }
+            for (LoadField loadField : var.getLoadFields()) {
+                delete(varPointers.get(new VarKey(context, method,
+                        loadField.getLValue().getIndex())), deleted, pointers);
+            }
+            if (!var.getStoreArrays().isEmpty()) {
+                for (int obj : pointsTo[p]) {
+                    delete(arrayPointers.get(obj), deleted, pointers);
+                }
+            }
+            for (LoadArray loadArray : var.getLoadArrays()) {
+                delete(varPointers.get(new VarKey(context, method,
+                        loadArray.getLValue().getIndex())), deleted, pointers);
+            }
+            for (Invoke callSite : var.getInvokes()) {
+                callees.get(new CallSiteKey(context, method, callSite.getIndex()))
+                        .forEach(callee -> delete(callee, deletedMethods, csMethods));
+            }
+        }
+
+        private static void delete(Integer pointer, boolean[] deleted,
+                                   Deque<Integer> pointers) {
+            if (pointer != null && !deleted[pointer]) {
+                deleted[pointer] = true;
+                pointers.add(pointer);
+            }
+        }
+
+        private static void delete(MethodKey csMethod, Set<MethodKey> deletedMethods,
+                                   Deque<MethodKey> csMethods) {
+            if (deletedMethods.add(csMethod)) {
+                csMethods.add(csMethod);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.cs;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.pta.core.cs.CSCallGraph;
+import pascal.taie.analysis.pta.core.cs.element.CSManager;
+import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Schedules the {@link Checkpoint}s of pointer analysis by options
+ * "checkpoint" (the file), "checkpoint-interval" (in seconds),
+ * "resume" and "changed-methods", and keeps the allocation sites
+ * by which the objects are encoded in checkpoints.
+ */
+class Checkpointer {
+
+    private static final Logger logger = LogManager.getLogger(Checkpointer.class);
+
+    /**
+     * File of checkpoints, or null if checkpointing is disabled.
+     */
+    private final Path file;
+
+    private final long intervalMillis;
+
+    /**
+     * Whether restore the analysis from {@link #file} if it exists.
+     */
+    private final boolean resume;
+
+    /**
+     * Signatures of the methods which are changed since the checkpoint
+     * was written. If it is not empty, the analysis resumes incrementally.
+     */
+    private final Set<String> changedMethods;
+
+    private long lastWriteTime;
+
+    /**
+     * Map from each object to one of its allocation sites, by which
+     * the object is encoded in checkpoints.
+     */
+    private final Map<Obj, New> allocations = Maps.newMap();
+
+    Checkpointer(AnalysisOptions options) {
+        String checkpoint = options.getString("checkpoint");
+        this.file = checkpoint != null ? Path.of(checkpoint) : null;
+        this.intervalMillis = 1000L * (options.get("checkpoint-interval") != null
+                ? options.getInt("checkpoint-interval") : 600);
+        this.resume = options.getBooleanOrDefault("resume", false);
+        this.changedMethods = getChangedMethods(options);
+    }
+
+    /**
+     * @return signatures given by option "changed-methods". As options given
+     * on command line are converted to YAML by inserting a space after each
+     * colon, the whitespaces in signatures are normalized.
+     */
+    private static Set<String> getChangedMethods(AnalysisOptions options) {
+        Set<String> methods = Sets.newSet();
+        Object value = options.get("changed-methods");
+        if (value instanceof Collection<?> signatures) {
+            signatures.forEach(sig -> methods.add(sig.toString().replaceAll("\\s+", " ")));
+        } else if (value != null) {
+            methods.add(value.toString().replaceAll("\\s+", " "));
+        }
+        return methods;
+    }
+
+    /**
+     * Records an allocation site of given object, if checkpointing is enabled.
+     */
+    void addAllocation(Obj obj, New allocSite) {
+        if (file != null) {
+            allocations.putIfAbsent(obj, allocSite);
+        }
+    }
+
+    /**
+     * Restores the points-to sets of the checkpoint if the analysis
+     * resumes and the checkpoint exists, and starts the first
+     * checkpoint interval.
+     *
+     * @return the restored pointers.
+     */
+    List<Pointer> restore(CSManager csManager, HeapModel heapModel) {
+        List<Pointer> restored = List.of();
+        if (file != null && resume && Files.exists(file)) {
+            if (changedMethods.isEmpty()) {
+                logger.info("Resuming from checkpoint {}", file);
+            } else {
+                logger.info("Resuming incrementally from checkpoint {}", file);
+            }
+            restored = Checkpoint.read(file, csManager, heapModel,
+                    allocations, changedMethods);
+        }
+        lastWriteTime = System.currentTimeMillis();
+        return restored;
+    }
+
+    /**
+     * Writes a checkpoint if the checkpoint interval has elapsed.
+     */
+    void writeIfDue(CSManager csManager, PointerFlowGraph pfg, CSCallGraph callGraph) {
+        if (file != null && System.currentTimeMillis()
+                - lastWriteTime >= intervalMillis) {
+            logger.info("Writing checkpoint to {}", file);
+            write(csManager, pfg, callGraph);
+        }
+    }
+
+    /**
+     * Writes a checkpoint if checkpointing is enabled.
+     */
+    void write(CSManager csManager, PointerFlowGraph pfg, CSCallGraph callGraph) {
+        if (file != null) {
+            Checkpoint.write(file, csManager, pfg, callGraph, allocations);
+            lastWriteTime = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.cs;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.pta.core.cs.CSCallGraph;
+import pascal.taie.analysis.pta.core.cs.selector.CISelector;
+import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Degrades the context sensitivity of pointer analysis when a {@link Budget}
+ * is exceeded: the methods with the most contexts are switched to context
+ * insensitivity, or the whole analysis if no method has multiple contexts.
+ * The contexts which have been created remain, and the new contexts of
+ * degraded methods are empty, thus the result is still sound.
+ * <p>
+ * The selectors of degraded methods are kept in {@link #getSelectors()},
+ * which take precedence over the given context selector.
+ */
+class Degrader {
+
+    private static final Logger logger = LogManager.getLogger(Degrader.class);
+
+    /**
+     * Fraction of the context-sensitive methods degraded
+     * each time when a budget is exceeded.
+     */
+    private static final double DEGRADE_RATIO = 0.1;
+
+    private final Budget budget;
+
+    /**
+     * Map from each method whose new contexts are selected by
+     * {@link CISelector} (as a budget is exceeded) to the number of
+     * its contexts at the time it is degraded.
+     */
+    private final Map<JMethod, Integer> degradedMethods = new LinkedHashMap<>();
+
+    /**
+     * Selectors of the degraded methods (and of the other methods whose
+     * contexts are changed by the solver, e.g., truncated).
+     */
+    private final Map<JMethod, ContextSelector> selectors = Maps.newMap();
+
+    /**
+     * Whether the whole analysis has fallen back to context insensitivity.
+     */
+    private boolean fellBackToCI = false;
+
+    Degrader(AnalysisOptions options) {
+        budget = new Budget(options);
+    }
+
+    /**
+     * @return true if any budget is set.
+     */
+    boolean isLimited() {
+        return budget.isLimited();
+    }
+
+    /**
+     * @return the map from methods to their selectors.
+     */
+    Map<JMethod, ContextSelector> getSelectors() {
+        return selectors;
+    }
+
+    /**
+     * @return true if given method has been degraded.
+     */
+    boolean isDegraded(JMethod method) {
+        return degradedMethods.containsKey(method);
+    }
+
+    /**
+     * Degrades the methods of given call graph if a budget is exceeded,
+     * and then re-arms the budget.
+     *
+     * @return true if the whole analysis falls back to context insensitivity
+     * by this check, then the solver should select all new contexts
+     * by {@link CISelector}.
+     */
+    boolean check(CSCallGraph callGraph) {
+        if (!budget.isLimited() || fellBackToCI) {
+            return false;
+        }
+        String exceeded = budget.checkExceeded();
+        if (exceeded == null) {
+            return false;
+        }
+        degrade(exceeded, callGraph);
+        budget.rearm();
+        return fellBackToCI;
+    }
+
+    private void degrade(String exceeded, CSCallGraph callGraph) {
+        Map<JMethod, Integer> contexts = Maps.newMap();
+        callGraph.reachableMethods().forEach(m ->
+                contexts.merge(m.getMethod(), 1, Integer::sum));
+        List<Map.Entry<JMethod, Integer>> candidates = contexts.entrySet()
+                .stream()
+                .filter(e -> e.getValue() > 1 && !degradedMethods.containsKey(e.getKey()))
+                .sorted(Map.Entry.<JMethod, Integer>comparingByValue().reversed())
+                .toList();
+        if (candidates.isEmpty()) {
+            logger.warn("Exceeded {}, falling back to context insensitivity", exceeded);
+            fellBackToCI = true;
+        } else {
+            int n = Math.max(1, (int) (candidates.size() * DEGRADE_RATIO));
+            logger.warn("Exceeded {}, analyzing {} methods context-insensitively",
+                    exceeded, n);
+            ContextSelector ciSelector = new CISelector();
+            candidates.subList(0, n).forEach(e -> {
+                degradedMethods.put(e.getKey(), e.getValue());
+                selectors.put(e.getKey(), ciSelector);
+            });
+        }
+    }
+
+    /**
+     * Reports the degradations caused by exceeded budgets.
+     */
+    void report() {
+        if (!degradedMethods.isEmpty()) {
+            logger.info("{} methods are degraded to context insensitivity:",
+                    degradedMethods.size());
+            degradedMethods.forEach((method, n) ->
+                    logger.info("  {} ({} contexts)", method, n));
+        }
+        if (fellBackToCI) {
+            logger.info("The analysis fell back to context insensitivity");
+        }
+    }
+}
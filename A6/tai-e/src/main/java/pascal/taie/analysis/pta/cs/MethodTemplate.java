@@ -0,0 +1,243 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.cs;
+
+import pascal.taie.analysis.graph.callgraph.CallGraphs;
+import pascal.taie.analysis.graph.callgraph.CallKind;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.PrimitiveType;
+import pascal.taie.language.type.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Context-independent template of the statements of a method which are
+ * processed when the method becomes reachable in a new context.
+ * <p>
+ * A template is compiled once per method, with the objects, fields and
+ * callees of static calls resolved in advance. The statements on
+ * primitive values cannot carry objects, thus they add no PFG edges;
+ * their pointers are still created (as inert pointers), so that the
+ * analysis result reports them as before, unless the solver prunes
+ * primitive pointers.
+ */
+class MethodTemplate {
+
+    /**
+     * x = new T, where obj is the abstract object of the allocation site.
+     */
+    record Allocation(New stmt, Var var, Obj obj) {
+    }
+
+    /**
+     * Flow of objects from source variable to target variable.
+     */
+    record VarFlow(Var source, Var target) {
+    }
+
+    /**
+     * T.f = x
+     */
+    record StaticStore(Var source, JField field) {
+    }
+
+    /**
+     * x = T.f
+     */
+    record StaticLoad(JField field, Var target) {
+    }
+
+    /**
+     * Flows of a call edge between the variables of the call site
+     * (caller) and the variables of the callee.
+     *
+     * @param params          flows from the arguments to the parameters.
+     * @param returns         flows from the return variables to the
+     *                        result of the call site.
+     * @param inertCallerVars variables of the caller which only hold
+     *                        primitive values.
+     * @param inertCalleeVars variables of the callee which only hold
+     *                        primitive values.
+     */
+    record CallBinding(List<VarFlow> params, List<VarFlow> returns,
+                       List<Var> inertCallerVars, List<Var> inertCalleeVars) {
+    }
+
+    /**
+     * Static call whose callee and binding are resolved in advance.
+     */
+    record StaticCall(Invoke callSite, JMethod callee,
+                      CallKind kind, CallBinding binding) {
+    }
+
+    private final List<Allocation> allocations = new ArrayList<>();
+
+    private final List<VarFlow> copies = new ArrayList<>();
+
+    private final List<StaticStore> staticStores = new ArrayList<>();
+
+    private final List<StaticLoad> staticLoads = new ArrayList<>();
+
+    private final List<StaticCall> staticCalls = new ArrayList<>();
+
+    private final List<Var> inertVars = new ArrayList<>();
+
+    private final List<JField> inertStaticFields = new ArrayList<>();
+
+    private MethodTemplate() {
+    }
+
+    /**
+     * Compiles the template of given method.
+     */
+    static MethodTemplate build(JMethod method, HeapModel heapModel) {
+        MethodTemplate template = new MethodTemplate();
+        for (Stmt stmt : method.getIR()) {
+            if (stmt instanceof New newStmt) {
+                template.allocations.add(new Allocation(
+                        newStmt, newStmt.getLValue(), heapModel.getObj(newStmt)));
+            } else if (stmt instanceof Copy copy) {
+                Var source = copy.getRValue();
+                Var target = copy.getLValue();
+                if (isReference(source.getType())) {
+                    template.copies.add(new VarFlow(source, target));
+                } else {
+                    template.inertVars.add(source);
+                    template.inertVars.add(target);
+                }
+            } else if (stmt instanceof StoreField store && store.isStatic()) {
+                Var source = store.getRValue();
+                JField field = store.getLValue().getFieldRef().resolve();
+                if (isReference(source.getType())) {
+                    template.staticStores.add(new StaticStore(source, field));
+                } else {
+                    template.inertVars.add(source);
+                    template.inertStaticFields.add(field);
+                }
+            } else if (stmt instanceof LoadField load && load.isStatic()) {
+                JField field = load.getRValue().getFieldRef().resolve();
+                Var target = load.getLValue();
+                if (isReference(field.getType())) {
+                    template.staticLoads.add(new StaticLoad(field, target));
+                } else {
+                    template.inertStaticFields.add(field);
+                    template.inertVars.add(target);
+                }
+            } else if (stmt instanceof Invoke invoke && invoke.isStatic()) {
+                JMethod callee = CallGraphs.resolveCallee(null, invoke);
+                template.staticCalls.add(new StaticCall(invoke, callee,
+                        CallGraphs.getCallKind(invoke), bind(invoke, callee)));
+            }
+        }
+        return template;
+    }
+
+    /**
+     * @return the binding of the call edge from given call site to given callee.
+     */
+    static CallBinding bind(Invoke callSite, JMethod callee) {
+        List<VarFlow> params = new ArrayList<>();
+        List<VarFlow> returns = new ArrayList<>();
+        List<Var> inertCallerVars = new ArrayList<>();
+        List<Var> inertCalleeVars = new ArrayList<>();
+        IR ir = callee.getIR();
+        List<Var> args = callSite.getRValue().getArgs();
+        for (int i = 0; i < args.size(); ++i) {
+            Var arg = args.get(i);
+            Var param = ir.getParam(i);
+            if (isReference(arg.getType())) {
+                params.add(new VarFlow(arg, param));
+            } else {
+                inertCallerVars.add(arg);
+                inertCalleeVars.add(param);
+            }
+        }
+        Var result = callSite.getLValue();
+        if (result != null) {
+            for (Var ret : ir.getReturnVars()) {
+                if (isReference(ret.getType())) {
+                    returns.add(new VarFlow(ret, result));
+                } else {
+                    inertCalleeVars.add(ret);
+                    inertCallerVars.add(result);
+                }
+            }
+        }
+        return new CallBinding(params, returns, inertCallerVars, inertCalleeVars);
+    }
+
+    /**
+     * @return whether values of given type may point to objects.
+     */
+    static boolean isReference(Type type) {
+        return !(type instanceof PrimitiveType);
+    }
+
+    List<Allocation> getAllocations() {
+        return allocations;
+    }
+
+    List<VarFlow> getCopies() {
+        return copies;
+    }
+
+    List<StaticStore> getStaticStores() {
+        return staticStores;
+    }
+
+    List<StaticLoad> getStaticLoads() {
+        return staticLoads;
+    }
+
+    List<StaticCall> getStaticCalls() {
+        return staticCalls;
+    }
+
+    /**
+     * @return variables which are used by the statements of this method,
+     * but only hold primitive values.
+     */
+    List<Var> getInertVars() {
+        return inertVars;
+    }
+
+    /**
+     * @return static fields which are used by the statements of this
+     * method, but only hold primitive values.
+     */
+    List<JField> getInertStaticFields() {
+        return inertStaticFields;
+    }
+}
@@ -0,0 +1,540 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.cs;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.CallGraphs;
+import pascal.taie.analysis.graph.callgraph.CallKind;
+import pascal.taie.analysis.graph.callgraph.DispatchCache;
+import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.PointerAnalysisResultImpl;
+import pascal.taie.analysis.pta.core.cs.CSCallGraph;
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.cs.element.CSVar;
+import pascal.taie.analysis.pta.core.cs.element.ConcurrentCSManager;
+import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.plugin.ResultProcessor;
+import pascal.taie.analysis.pta.pts.PointsToSet;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.proginfo.FieldRef;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Multi-threaded variant of {@link Solver}.
+ * <p>
+ * Each work-list entry is a fork-join task, so that the entries are
+ * distributed over the work-stealing queues of a {@link ForkJoinPool}, and
+ * the analysis terminates when the pool becomes quiescent. Context-sensitive
+ * elements are interned by a {@link ConcurrentCSManager}, and the points-to
+ * sets and PFG are thread-safe. Each object is added to a points-to set by
+ * exactly one thread, which then propagates it to the successors.
+ * <p>
+ * Reachable methods are recorded in a concurrent set, so that a method
+ * is instantiated by the thread which first reaches it without locking.
+ * Insertions into the call graph (together with the construction of IR,
+ * heap objects and templates of newly reachable methods) are serialized
+ * by the lock of the call graph.
+ * <p>
+ * As pointer analysis computes the least fixed point of its constraints,
+ * the result is identical to the one of the sequential solver.
+ * Cycle collapsing, wave propagation, shared points-to sets, budgets,
+ * adaptive context depths and checkpoints are only supported by
+ * the sequential solver.
+ */
+class ParallelSolver {
+
+    private static final Logger logger = LogManager.getLogger(ParallelSolver.class);
+
+    private final HeapModel heapModel;
+
+    private final ContextSelector contextSelector;
+
+    private final int nThreads;
+
+    /**
+     * Filters propagated objects by the types of target pointers,
+     * or null if types are not filtered.
+     */
+    private final TypeFilter typeFilter;
+
+    /**
+     * Whether pointers of primitive types are not created at all.
+     */
+    private final boolean prunePrimitives;
+
+    /**
+     * Primitive variables whose pointers are pruned in each context.
+     */
+    private final Set<Pair<Context, Var>> prunedVars = Sets.newConcurrentSet();
+
+    /**
+     * Primitive static fields whose pointers are pruned.
+     */
+    private final Set<JField> prunedStaticFields = Sets.newConcurrentSet();
+
+    private final ClassHierarchy hierarchy = World.get().getClassHierarchy();
+
+    /**
+     * Method dispatch caches its results in the class hierarchy,
+     * which is not thread-safe, thus the missed resolutions are
+     * guarded by a lock.
+     */
+    private final DispatchCache dispatchCache = new DispatchCache() {
+        @Override
+        protected JMethod resolve(Type type, Invoke callSite) {
+            synchronized (hierarchy) {
+                return super.resolve(type, callSite);
+            }
+        }
+    };
+
+    /**
+     * Context-sensitive methods which have been reached by any thread.
+     */
+    private final Set<CSMethod> reachableMethods = Sets.newConcurrentSet();
+
+    /**
+     * Map from a method to its template, guarded by the call graph.
+     */
+    private final Map<JMethod, MethodTemplate> templates = Maps.newMap();
+
+    private ConcurrentCSManager csManager;
+
+    private CSCallGraph callGraph;
+
+    private PointerFlowGraph pointerFlowGraph;
+
+    private ForkJoinPool pool;
+
+    /**
+     * The first exception thrown by any propagation task.
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    ParallelSolver(HeapModel heapModel, ContextSelector contextSelector,
+                   int nThreads, boolean filterTypes, boolean prunePrimitives) {
+        this.heapModel = heapModel;
+        this.contextSelector = contextSelector;
+        this.nThreads = nThreads;
+        this.typeFilter = filterTypes ? new TypeFilter() : null;
+        this.prunePrimitives = prunePrimitives;
+    }
+
+    /**
+     * Runs pointer analysis algorithm.
+     */
+    void solve() {
+        logger.info("Solving pointer analysis with {} threads", nThreads);
+        pool = new ForkJoinPool(nThreads);
+        try {
+            initialize();
+            pool.awaitQuiescence(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw new AnalysisException("Parallel pointer analysis failed",
+                    failure.get());
+        }
+        pointerFlowGraph.freeze();
+    }
+
+    /**
+     * Initializes pointer analysis.
+     */
+    private void initialize() {
+        csManager = new ConcurrentCSManager();
+        pointerFlowGraph = new PointerFlowGraph(true);
+        callGraph = new CSCallGraph(csManager);
+        // process program entry, i.e., main method
+        Context defContext = contextSelector.getEmptyContext();
+        JMethod main = World.get().getMainMethod();
+        CSMethod csMethod = csManager.getCSMethod(defContext, main);
+        synchronized (callGraph) {
+            callGraph.addEntryMethod(csMethod);
+        }
+        addReachable(csMethod);
+    }
+
+    /**
+     * Processes new reachable context-sensitive method.
+     */
+    private void addReachable(CSMethod csMethod) {
+        if (!reachableMethods.add(csMethod)) {
+            return;
+        }
+        MethodTemplate template;
+        synchronized (callGraph) {
+            callGraph.addReachableMethod(csMethod);
+            template = templates.computeIfAbsent(csMethod.getMethod(), m -> {
+                // templates resolve the callees of static calls
+                synchronized (hierarchy) {
+                    return MethodTemplate.build(m, heapModel);
+                }
+            });
+        }
+        instantiate(template, csMethod);
+    }
+
+    /**
+     * Instantiates the template of a method in the context of csMethod.
+     */
+    private void instantiate(MethodTemplate template, CSMethod csMethod) {
+        Context context = csMethod.getContext();
+        for (MethodTemplate.Allocation alloc : template.getAllocations()) {
+            Context heapContext = contextSelector.selectHeapContext(csMethod, alloc.obj());
+            addEntry(csManager.getCSVar(context, alloc.var()),
+                    PointsToSetFactory.make(csManager.getCSObj(heapContext, alloc.obj())));
+        }
+        for (MethodTemplate.VarFlow copy : template.getCopies()) {
+            addPFGEdge(csManager.getCSVar(context, copy.source()),
+                    csManager.getCSVar(context, copy.target()));
+        }
+        for (MethodTemplate.StaticStore store : template.getStaticStores()) {
+            addPFGEdge(csManager.getCSVar(context, store.source()),
+                    csManager.getStaticField(store.field()));
+        }
+        for (MethodTemplate.StaticLoad load : template.getStaticLoads()) {
+            addPFGEdge(csManager.getStaticField(load.field()),
+                    csManager.getCSVar(context, load.target()));
+        }
+        for (Var var : template.getInertVars()) {
+            if (!isPruned(context, var)) {
+                csManager.getCSVar(context, var);
+            }
+        }
+        for (JField field : template.getInertStaticFields()) {
+            if (prunePrimitives) {
+                prunedStaticFields.add(field);
+            } else {
+                csManager.getStaticField(field);
+            }
+        }
+        for (MethodTemplate.StaticCall call : template.getStaticCalls()) {
+            CSCallSite csCallSite = csManager.getCSCallSite(context, call.callSite());
+            Context calleeContext = contextSelector.selectContext(csCallSite, call.callee());
+            CSMethod csCallee = csManager.getCSMethod(calleeContext, call.callee());
+            processCallEdge(csCallSite, csCallee, call.kind(), call.binding());
+        }
+    }
+
+    /**
+     * Adds call edge "csCallSite -> csCallee" to the call graph, and if the
+     * edge is new, makes the callee reachable and connects arguments and
+     * return values.
+     *
+     * @param binding the binding of the call edge, or null if it has not
+     *                been computed. It is then computed while holding the
+     *                call graph lock, as it builds the IR of the callee.
+     */
+    private void processCallEdge(CSCallSite csCallSite, CSMethod csCallee,
+                                 CallKind kind, MethodTemplate.CallBinding binding) {
+        synchronized (callGraph) {
+            if (!callGraph.addEdge(new Edge<>(kind, csCallSite, csCallee))) {
+                return;
+            }
+            if (binding == null) {
+                binding = MethodTemplate.bind(
+                        csCallSite.getCallSite(), csCallee.getMethod());
+            }
+        }
+        addReachable(csCallee);
+        addCallFlows(csCallSite.getContext(), csCallee.getContext(), binding);
+    }
+
+    /**
+     * Adds the PFG edges of a new call edge from a call site in
+     * callerContext to a callee in calleeContext.
+     */
+    private void addCallFlows(Context callerContext, Context calleeContext,
+                              MethodTemplate.CallBinding binding) {
+        for (MethodTemplate.VarFlow param : binding.params()) {
+            // addEdge(ai, pi)
+            addPFGEdge(csManager.getCSVar(callerContext, param.source()),
+                    csManager.getCSVar(calleeContext, param.target()));
+        }
+        for (MethodTemplate.VarFlow ret : binding.returns()) {
+            // addEdge(ret, r)
+            addPFGEdge(csManager.getCSVar(calleeContext, ret.source()),
+                    csManager.getCSVar(callerContext, ret.target()));
+        }
+        for (Var var : binding.inertCallerVars()) {
+            if (!isPruned(callerContext, var)) {
+                csManager.getCSVar(callerContext, var);
+            }
+        }
+        for (Var var : binding.inertCalleeVars()) {
+            if (!isPruned(calleeContext, var)) {
+                csManager.getCSVar(calleeContext, var);
+            }
+        }
+    }
+
+    /**
+     * Adds an entry to the work list, i.e., schedules a task which
+     * propagates pointsToSet to pointer.
+     */
+    private void addEntry(Pointer pointer, PointsToSet pointsToSet) {
+        if (typeFilter != null) {
+            pointsToSet = typeFilter.filter(pointsToSet, pointer);
+        }
+        if (pointsToSet.isEmpty()) {
+            return;
+        }
+        PropagateTask task = new PropagateTask(pointer, pointsToSet);
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.fork();
+        } else {
+            pool.execute(task);
+        }
+    }
+
+    /**
+     * Adds an edge "source -> target" to the PFG.
+     */
+    private void addPFGEdge(Pointer source, Pointer target) {
+        // the edge is inserted before reading pts(source), and propagate()
+        // updates pts(source) before reading its successors, thus every
+        // object of source is propagated along the edge by at least one thread
+        if (pointerFlowGraph.addEdge(source, target)) {
+            if (!source.getPointsToSet().isEmpty()) {
+                addEntry(target, source.getPointsToSet());
+            }
+        }
+    }
+
+    /**
+     * Adds edges "source(o) -> target" to the PFG for each object o in objs,
+     * and propagates the objects of all new sources to target in one entry.
+     */
+    private void addPFGEdges(PointsToSet objs,
+                             Function<CSObj, ? extends Pointer> source,
+                             Pointer target) {
+        PointsToSet pointsToSet = PointsToSetFactory.make();
+        for (CSObj obj : objs) {
+            Pointer s = source.apply(obj);
+            if (pointerFlowGraph.addEdge(s, target)) {
+                pointsToSet.addAll(s.getPointsToSet());
+            }
+        }
+        addEntry(target, pointsToSet);
+    }
+
+    /**
+     * Work-list entry: propagates a points-to set to a pointer.
+     */
+    private class PropagateTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Pointer pointer;
+
+        private final PointsToSet pointsToSet;
+
+        private PropagateTask(Pointer pointer, PointsToSet pointsToSet) {
+            this.pointer = pointer;
+            this.pointsToSet = pointsToSet;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                PointsToSet deltaSet = propagate(pointer, pointsToSet);
+                if (!deltaSet.isEmpty() && pointer instanceof CSVar csVar) {
+                    processVar(csVar, deltaSet);
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    /**
+     * Adds pointsToSet to pt(pointer) and propagates the objects which are
+     * newly added by this thread to the PFG successors of pointer.
+     *
+     * @return the objects which are newly added by this thread.
+     */
+    private PointsToSet propagate(Pointer pointer, PointsToSet pointsToSet) {
+        PointsToSet deltaSet = PointsToSetFactory.make();
+        for (CSObj obj : pointsToSet) {
+            if (pointer.getPointsToSet().addObject(obj)) {
+                deltaSet.addObject(obj);
+            }
+        }
+        if (!deltaSet.isEmpty()) {
+            for (Pointer succ : pointerFlowGraph.getSuccsOf(pointer)) {
+                addEntry(succ, deltaSet);
+            }
+        }
+        return deltaSet;
+    }
+
+    /**
+     * @return whether the pointer of given variable in given context is
+     * pruned, i.e., primitive pointers are pruned and the variable is
+     * primitive. The pruned pointer is recorded for statistics.
+     */
+    private boolean isPruned(Context context, Var var) {
+        if (prunePrimitives && !MethodTemplate.isReference(var.getType())) {
+            prunedVars.add(new Pair<>(context, var));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Processes the statements on csVar for the new objects of csVar.
+     */
+    private void processVar(CSVar csVar, PointsToSet deltaSet) {
+        Var var = csVar.getVar();
+        Context c = csVar.getContext();
+        // x.f = y
+        for (StoreField storeField : var.getStoreFields()) {
+            if (isPruned(c, storeField.getRValue())) {
+                continue;
+            }
+            CSVar from = csManager.getCSVar(c, storeField.getRValue());
+            JField field = resolveField(storeField.getFieldRef());
+            for (CSObj obj : deltaSet) {
+                addPFGEdge(from, csManager.getInstanceField(obj, field));
+            }
+        }
+        // y = x.f
+        for (LoadField loadField : var.getLoadFields()) {
+            if (isPruned(c, loadField.getLValue())) {
+                continue;
+            }
+            JField field = resolveField(loadField.getFieldRef());
+            addPFGEdges(deltaSet, obj -> csManager.getInstanceField(obj, field),
+                    csManager.getCSVar(c, loadField.getLValue()));
+        }
+        // x[i] = y
+        for (StoreArray storeArray : var.getStoreArrays()) {
+            if (isPruned(c, storeArray.getRValue())) {
+                continue;
+            }
+            CSVar from = csManager.getCSVar(c, storeArray.getRValue());
+            for (CSObj obj : deltaSet) {
+                addPFGEdge(from, csManager.getArrayIndex(obj));
+            }
+        }
+        // y = x[i]
+        for (LoadArray loadArray : var.getLoadArrays()) {
+            if (isPruned(c, loadArray.getLValue())) {
+                continue;
+            }
+            addPFGEdges(deltaSet, csManager::getArrayIndex,
+                    csManager.getCSVar(c, loadArray.getLValue()));
+        }
+        processCall(csVar, deltaSet);
+    }
+
+    /**
+     * Processes instance calls when points-to set of the receiver variable
+     * changes. The new receiver objects are grouped by the context-sensitive
+     * callees they dispatch to.
+     *
+     * @param recv     the receiver variable
+     * @param deltaSet set of new discovered objects pointed by the variable.
+     */
+    private void processCall(CSVar recv, PointsToSet deltaSet) {
+        Context c = recv.getContext();
+        for (Invoke callSite : recv.getVar().getInvokes()) {
+            CSCallSite csCallSite = csManager.getCSCallSite(c, callSite);
+            Map<CSMethod, PointsToSet> recvObjs = new LinkedHashMap<>();
+            for (CSObj recvObj : deltaSet) {
+                JMethod method = resolveCallee(recvObj, callSite);
+                Context ct = contextSelector.selectContext(csCallSite, recvObj, method);
+                recvObjs.computeIfAbsent(csManager.getCSMethod(ct, method),
+                        m -> PointsToSetFactory.make()).addObject(recvObj);
+            }
+            recvObjs.forEach((csMethod, objs) -> {
+                processCallEdge(csCallSite, csMethod,
+                        CallGraphs.getCallKind(callSite), null);
+                // the callee's IR is built by processCallEdge() while holding
+                // the call graph lock, which also publishes it to this thread
+                Var thisVar = csMethod.getMethod().getIR().getThis();
+                addEntry(csManager.getCSVar(csMethod.getContext(), thisVar), objs);
+            });
+        }
+    }
+
+    /**
+     * Resolves the field referenced by a field access. Field resolution
+     * caches its results in the class hierarchy as method dispatch does,
+     * thus it is guarded by the same lock.
+     */
+    private JField resolveField(FieldRef fieldRef) {
+        synchronized (hierarchy) {
+            return fieldRef.resolve();
+        }
+    }
+
+    /**
+     * Resolves the callee of a call site with the receiver object.
+     */
+    private JMethod resolveCallee(CSObj recv, Invoke callSite) {
+        Type type = recv != null ? recv.getObject().getType() : null;
+        return dispatchCache.resolveCallee(type, callSite);
+    }
+
+    PointerAnalysisResult getResult() {
+        PointerAnalysisResult result = new PointerAnalysisResultImpl(csManager, callGraph);
+        result.storeResult(DispatchCache.class.getName(), dispatchCache);
+        result.storeResult(ResultProcessor.PRUNED_POINTERS,
+                prunedVars.size() + prunedStaticFields.size());
+        return result;
+    }
+}
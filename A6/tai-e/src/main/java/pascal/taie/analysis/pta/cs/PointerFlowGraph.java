@@ -22,21 +22,109 @@
 
 package pascal.taie.analysis.pta.cs;
 
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
 import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.analysis.pta.pts.PointsToSet;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
 import pascal.taie.util.collection.Maps;
 import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
 
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 /**
  * Represents pointer flow graph in context-sensitive pointer analysis.
+ * <p>
+ * A concurrent PFG supports node creation and edge insertion from
+ * multiple threads; it is used by {@link ParallelSolver}.
+ * Cycle collapsing is only supported by sequential PFGs.
  */
 class PointerFlowGraph {
 
     /**
-     * Map from a pointer (node) to its successors in PFG.
+     * Whether this PFG can be accessed by multiple threads.
      */
-    private final MultiMap<Pointer, Pointer> successors = Maps.newMultiMap();
+    private final boolean concurrent;
+
+    /**
+     * Pointers (nodes) of this PFG indexed by {@link Pointer#getIndex()}.
+     */
+    private volatile Pointer[] nodes = new Pointer[1024];
+
+    /**
+     * Successors of the pointers, indexed in the same way as {@link #nodes}.
+     */
+    private volatile SuccessorArray[] successors = new SuccessorArray[1024];
+
+    /**
+     * Number of pointers in {@link #nodes}, guarded by this PFG
+     * if it is concurrent.
+     */
+    private int nodeCount = 0;
+
+    /**
+     * Compressed sparse row (CSR) layout of the successors after this PFG
+     * is frozen, i.e., the successors of the i-th pointer are
+     * {@code targets[offsets[i]]}, ..., {@code targets[offsets[i + 1] - 1]}.
+     */
+    private int[] offsets;
+
+    private int[] targets;
+
+    /**
+     * Map from a collapsed pointer to the representative of its cycle.
+     * Pointers that are absent from this map represent themselves.
+     */
+    private final Map<Pointer, Pointer> representatives = Maps.newMap();
+
+    /**
+     * Map from a representative to all pointers it represents
+     * (including itself). Only representatives of collapsed cycles
+     * are present in this map.
+     */
+    private final MultiMap<Pointer, Pointer> members = Maps.newMultiMap();
+
+    /**
+     * Makes the points-to sets shared by collapsed pointers.
+     */
+    private final Supplier<PointsToSet> ptsFactory;
+
+    PointerFlowGraph() {
+        this(PointsToSetFactory::make);
+    }
+
+    /**
+     * @param ptsFactory makes the points-to sets shared by collapsed pointers,
+     *                   which should be of the same kind as the points-to sets
+     *                   of the other pointers.
+     */
+    PointerFlowGraph(Supplier<PointsToSet> ptsFactory) {
+        this(ptsFactory, false);
+    }
+
+    /**
+     * @param concurrent whether the PFG can be accessed by multiple threads.
+     */
+    PointerFlowGraph(boolean concurrent) {
+        this(PointsToSetFactory::make, concurrent);
+    }
+
+    private PointerFlowGraph(Supplier<PointsToSet> ptsFactory, boolean concurrent) {
+        this.ptsFactory = ptsFactory;
+        this.concurrent = concurrent;
+    }
 
     /**
      * Adds an edge (source -> target) to this PFG.
@@ -45,13 +133,329 @@ class PointerFlowGraph {
      * otherwise false.
      */
     boolean addEdge(Pointer source, Pointer target) {
-        return successors.put(source, target);
+        if (targets != null) {
+            throw new IllegalStateException("Cannot add edges to a frozen PFG");
+        }
+        Pointer s = getRepresentative(source);
+        Pointer t = getRepresentative(target);
+        if (s == t) { // edges inside a collapsed cycle are redundant
+            return false;
+        }
+        int targetIndex = indexOf(t);
+        SuccessorArray succs = successors[indexOf(s)];
+        if (concurrent) {
+            synchronized (succs) {
+                return succs.add(targetIndex);
+            }
+        }
+        return succs.add(targetIndex);
     }
 
     /**
-     * @return successors of given pointer in the PFG.
+     * @return the index of given pointer, which is added to this PFG
+     * if it is absent.
+     */
+    private int indexOf(Pointer pointer) {
+        int index = pointer.getIndex();
+        if (index != -1) {
+            return index;
+        }
+        if (concurrent) {
+            synchronized (this) {
+                index = pointer.getIndex();
+                return index != -1 ? index : addNode(pointer);
+            }
+        }
+        return addNode(pointer);
+    }
+
+    private int addNode(Pointer pointer) {
+        if (nodeCount == nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodeCount * 2);
+            successors = Arrays.copyOf(successors, nodeCount * 2);
+        }
+        int index = nodeCount++;
+        nodes[index] = pointer;
+        successors[index] = new SuccessorArray();
+        // the index is published after the arrays, thus a thread which
+        // sees the index also sees the pointer and its successors
+        pointer.setIndex(index);
+        return index;
+    }
+
+    /**
+     * @return successors of given pointer in the PFG. The result is a
+     * snapshot, which does not contain the edges added afterwards.
+     */
+    List<Pointer> getSuccsOf(Pointer pointer) {
+        int i = pointer.getIndex();
+        if (i == -1 || (targets != null && i + 1 >= offsets.length)) {
+            // the pointer has no edges, e.g., it is created after freezing
+            return List.of();
+        } else if (targets != null) {
+            return new Successors(targets, offsets[i], offsets[i + 1]);
+        } else {
+            SuccessorArray succs = successors[i];
+            if (concurrent) {
+                synchronized (succs) {
+                    return new Successors(succs.indexes(), 0, succs.size());
+                }
+            }
+            return new Successors(succs.indexes(), 0, succs.size());
+        }
+    }
+
+    /**
+     * Pointers of the indexes in a range of an index array.
+     */
+    private class Successors extends AbstractList<Pointer> implements RandomAccess {
+
+        // read after the indexes, thus it contains all the indexed pointers
+        private final Pointer[] nodes = PointerFlowGraph.this.nodes;
+
+        private final int[] indexes;
+
+        private final int from;
+
+        private final int to;
+
+        private Successors(int[] indexes, int from, int to) {
+            this.indexes = indexes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Pointer get(int i) {
+            return nodes[indexes[from + i]];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * Freezes this PFG into CSR layout, which is compact and fast to
+     * traverse after the analysis. Edges cannot be added to a frozen PFG.
+     */
+    void freeze() {
+        if (targets != null) {
+            return;
+        }
+        int n = nodeCount;
+        int[] offs = new int[n + 1];
+        for (int i = 0; i < n; ++i) {
+            offs[i + 1] = offs[i] + successors[i].size();
+        }
+        int[] tgts = new int[offs[n]];
+        for (int i = 0; i < n; ++i) {
+            SuccessorArray succs = successors[i];
+            System.arraycopy(succs.indexes(), 0, tgts, offs[i], succs.size());
+            succs.clear();
+        }
+        offsets = offs;
+        targets = tgts;
+    }
+
+    /**
+     * @return the representative of the cycle which the given pointer
+     * has been collapsed into, or the pointer itself if it is not collapsed.
+     */
+    Pointer getRepresentative(Pointer pointer) {
+        return representatives.getOrDefault(pointer, pointer);
+    }
+
+    /**
+     * @return all pointers represented by the given representative.
+     */
+    Set<Pointer> getMembers(Pointer rep) {
+        return members.containsKey(rep) ? members.get(rep) : Set.of(rep);
+    }
+
+    /**
+     * Calls action for each edge of this PFG. The pointers collapsed into
+     * a cycle are reported as connected to their representative in both
+     * directions, as they share one points-to set.
+     */
+    void forEachEdge(BiConsumer<Pointer, Pointer> action) {
+        for (int i = 0; i < nodeCount; ++i) {
+            Pointer source = nodes[i];
+            getSuccsOf(source).forEach(target -> action.accept(source, target));
+        }
+        members.forEach((rep, member) -> {
+            if (member != rep) {
+                action.accept(rep, member);
+                action.accept(member, rep);
+            }
+        });
+    }
+
+    /**
+     * @return the number of pointers that have been collapsed into
+     * another representative.
+     */
+    int getNumberOfCollapsedPointers() {
+        return representatives.size();
+    }
+
+    /**
+     * Computes the strongly connected component containing the given
+     * representative, i.e., the representatives which are reachable from
+     * {@code rep} and can also reach {@code rep}.
+     */
+    Set<Pointer> getSCCOf(Pointer rep) {
+        // forward: collect reachable representatives and reverse edges among them
+        MultiMap<Pointer, Pointer> preds = Maps.newMultiMap();
+        Set<Pointer> reachable = Sets.newSet();
+        Deque<Pointer> stack = new ArrayDeque<>();
+        reachable.add(rep);
+        stack.push(rep);
+        while (!stack.isEmpty()) {
+            Pointer p = stack.pop();
+            for (Pointer succ : getSuccsOf(p)) {
+                Pointer s = getRepresentative(succ);
+                preds.put(s, p);
+                if (reachable.add(s)) {
+                    stack.push(s);
+                }
+            }
+        }
+        // backward: keep the reachable representatives which reach rep
+        Set<Pointer> scc = Sets.newHybridSet();
+        scc.add(rep);
+        stack.push(rep);
+        while (!stack.isEmpty()) {
+            for (Pointer pred : preds.get(stack.pop())) {
+                if (scc.add(pred)) {
+                    stack.push(pred);
+                }
+            }
+        }
+        return scc;
+    }
+
+    /**
+     * Computes the strongly connected components of the representatives
+     * which are reachable from the given roots or from any pointer with
+     * outgoing edges, by Tarjan's algorithm.
+     *
+     * @return the components in topological order, i.e., every edge between
+     * two different components goes from an earlier to a later one.
+     */
+    List<List<Pointer>> getSCCsInTopologicalOrder(Collection<Pointer> roots) {
+        Map<Pointer, Integer> indexes = Maps.newMap();
+        Map<Pointer, Integer> lowLinks = Maps.newMap();
+        Deque<Pointer> sccStack = new ArrayDeque<>();
+        Set<Pointer> onStack = Sets.newSet();
+        Deque<DFSFrame> dfsStack = new ArrayDeque<>();
+        // Tarjan's algorithm finishes components in reverse topological order
+        Deque<List<Pointer>> sccs = new ArrayDeque<>();
+        List<Pointer> starts = new ArrayList<>();
+        for (int i = 0; i < nodeCount; ++i) {
+            if (successors[i].size() > 0) {
+                starts.add(nodes[i]);
+            }
+        }
+        starts.addAll(roots);
+        for (Pointer start : starts) {
+            Pointer root = getRepresentative(start);
+            if (indexes.containsKey(root)) {
+                continue;
+            }
+            visit(root, indexes, lowLinks, sccStack, onStack, dfsStack);
+            while (!dfsStack.isEmpty()) {
+                DFSFrame frame = dfsStack.peek();
+                Pointer p = frame.pointer();
+                if (frame.succs().hasNext()) {
+                    Pointer s = getRepresentative(frame.succs().next());
+                    if (!indexes.containsKey(s)) {
+                        visit(s, indexes, lowLinks, sccStack, onStack, dfsStack);
+                    } else if (onStack.contains(s)) {
+                        lowLinks.put(p, Math.min(lowLinks.get(p), indexes.get(s)));
+                    }
+                } else {
+                    dfsStack.pop();
+                    if (lowLinks.get(p).equals(indexes.get(p))) {
+                        List<Pointer> scc = new ArrayList<>();
+                        Pointer q;
+                        do {
+                            q = sccStack.pop();
+                            onStack.remove(q);
+                            scc.add(q);
+                        } while (q != p);
+                        sccs.push(scc);
+                    }
+                    if (!dfsStack.isEmpty()) {
+                        Pointer parent = dfsStack.peek().pointer();
+                        lowLinks.put(parent, Math.min(lowLinks.get(parent), lowLinks.get(p)));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(sccs);
+    }
+
+    private void visit(Pointer p, Map<Pointer, Integer> indexes,
+                       Map<Pointer, Integer> lowLinks, Deque<Pointer> sccStack,
+                       Set<Pointer> onStack, Deque<DFSFrame> dfsStack) {
+        int index = indexes.size();
+        indexes.put(p, index);
+        lowLinks.put(p, index);
+        sccStack.push(p);
+        onStack.add(p);
+        dfsStack.push(new DFSFrame(p, getSuccsOf(p).iterator()));
+    }
+
+    private record DFSFrame(Pointer pointer, Iterator<Pointer> succs) {
+    }
+
+    /**
+     * Collapses the given representatives (which form a cycle in this PFG)
+     * into {@code rep}. Afterwards, all collapsed pointers share one
+     * points-to set and one successor set. The shared points-to set
+     * initially holds the objects that have already reached every collapsed
+     * pointer; the caller is responsible for propagating the returned
+     * objects, which reached only part of the cycle, to {@code rep}.
+     *
+     * @return the union of the points-to sets of the collapsed pointers.
      */
-    Set<Pointer> getSuccsOf(Pointer pointer) {
-        return successors.get(pointer);
+    PointsToSet collapse(Pointer rep, Collection<Pointer> cycle) {
+        PointsToSet union = PointsToSetFactory.make();
+        cycle.forEach(p -> union.addAll(p.getPointsToSet()));
+        PointsToSet intersection = PointsToSetFactory.make();
+        for (CSObj obj : union) {
+            if (cycle.stream().allMatch(p -> p.getPointsToSet().contains(obj))) {
+                intersection.addObject(obj);
+            }
+        }
+        PointsToSet shared = ptsFactory.get();
+        shared.addAll(intersection);
+        members.put(rep, rep);
+        for (Pointer p : cycle) {
+            if (p != rep) {
+                for (Pointer member : getMembers(p)) {
+                    representatives.put(member, rep);
+                    members.put(rep, member);
+                }
+                members.removeAll(p);
+                if (p.getIndex() != -1) {
+                    SuccessorArray succs = successors[p.getIndex()];
+                    SuccessorArray repSuccs = successors[indexOf(rep)];
+                    for (int i = 0; i < succs.size(); ++i) {
+                        repSuccs.add(succs.indexes()[i]);
+                    }
+                    succs.clear();
+                }
+            }
+        }
+        // remove the edges which now lie inside the collapsed cycle
+        if (rep.getIndex() != -1) {
+            successors[rep.getIndex()]
+                    .removeIf(i -> getRepresentative(nodes[i]) == rep);
+        }
+        members.get(rep).forEach(p -> p.setPointsToSet(shared));
+        return union;
     }
 }
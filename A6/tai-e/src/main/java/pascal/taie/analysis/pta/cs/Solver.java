@@ -27,11 +27,14 @@ import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
 import pascal.taie.analysis.graph.callgraph.CallGraphs;
 import pascal.taie.analysis.graph.callgraph.CallKind;
+import pascal.taie.analysis.graph.callgraph.DispatchCache;
 import pascal.taie.analysis.graph.callgraph.Edge;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.PointerAnalysisResultImpl;
 import pascal.taie.analysis.pta.core.cs.CSCallGraph;
 import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
+import pascal.taie.analysis.pta.core.cs.element.ArrayBasedCSManager;
 import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSManager;
@@ -39,14 +42,18 @@ import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
 import pascal.taie.analysis.pta.core.cs.element.CSVar;
 import pascal.taie.analysis.pta.core.cs.element.InstanceField;
-import pascal.taie.analysis.pta.core.cs.element.MapBasedCSManager;
 import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.analysis.pta.core.cs.element.SharedPointsToSetCSManager;
 import pascal.taie.analysis.pta.core.cs.element.StaticField;
+import pascal.taie.analysis.pta.core.cs.selector.CISelector;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
+import pascal.taie.analysis.pta.core.cs.selector.SelectiveSelector;
+import pascal.taie.analysis.pta.core.cs.selector.TruncatedSelector;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
-import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.plugin.ResultProcessor;
 import pascal.taie.analysis.pta.pts.PointsToSet;
 import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.analysis.pta.pts.PointsToSetPool;
 import pascal.taie.config.AnalysisOptions;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.Var;
@@ -54,6 +61,19 @@ import pascal.taie.ir.stmt.*;
 import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Lists;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 class Solver {
 
@@ -63,12 +83,149 @@ class Solver {
 
     private final HeapModel heapModel;
 
-    private final ContextSelector contextSelector;
+    /**
+     * Selects contexts. It is replaced by {@link CISelector} when
+     * the analysis falls back to context insensitivity.
+     */
+    private ContextSelector contextSelector;
+
+    /**
+     * Number of processed work-list entries between two periodic checks
+     * of budgets and checkpoints.
+     */
+    private static final int CHECK_INTERVAL = 4096;
+
+    private Degrader degrader;
+
+    private final Checkpointer checkpointer;
+
+    /**
+     * Maximum number of contexts of a method, beyond which the context
+     * depth of the method is reduced, or 0 if it is unlimited.
+     */
+    private final int contextThreshold;
+
+    /**
+     * The given context selector, whose contexts are truncated for
+     * the methods whose context depth is reduced.
+     */
+    private ContextSelector baseSelector;
+
+    /**
+     * Context-sensitive instances of each reachable method.
+     */
+    private final MultiMap<JMethod, CSMethod> csMethods = Maps.newMultiMap();
+
+    /**
+     * Number of contexts of each method at its current context depth.
+     */
+    private final Map<JMethod, Integer> contextCounts = Maps.newMap();
+
+    /**
+     * Map from each method whose context depth is reduced
+     * to its current context depth.
+     */
+    private final Map<JMethod, Integer> reducedDepths = new LinkedHashMap<>();
+
+    /**
+     * Methods whose context depths are reduced and whose existing
+     * contexts wait to be merged.
+     */
+    private final Set<JMethod> pendingMerges = Sets.newHybridOrderedSet();
+
+    /**
+     * Whether the contexts of methods are being merged.
+     */
+    private boolean mergingContexts = false;
+
+    /**
+     * Number of context-sensitive variables merged into shorter contexts.
+     */
+    private int mergedVars = 0;
+
+    private int processedEntries = 0;
+
+    /**
+     * Map from a method to its template, which is instantiated
+     * in each context of the method.
+     */
+    private final Map<JMethod, MethodTemplate> templates = Maps.newMap();
+
+    /**
+     * Whether collapse the cycles in PFG which are found by
+     * lazy cycle detection.
+     */
+    private final boolean collapseCycles;
+
+    /**
+     * Whether propagate objects by waves over the topologically
+     * sorted PFG instead of in FIFO order of work-list entries.
+     */
+    private final boolean wavePropagation;
+
+    /**
+     * Whether pointers with identical points-to sets share
+     * one hash-consed set.
+     */
+    private final boolean sharePointsToSets;
+
+    /**
+     * Pool of the shared points-to sets, or null if sets are not shared.
+     */
+    private PointsToSetPool pointsToSetPool;
+
+    /**
+     * Whether only propagate the objects whose types are subtypes of
+     * the declared type of the target pointer.
+     */
+    private final boolean filterTypes;
+
+    private TypeFilter typeFilter;
+
+    /**
+     * Whether pointers of primitive types are not created at all.
+     * They never point to any object, but otherwise they are created
+     * with empty points-to sets, so that the result lists them.
+     */
+    private final boolean prunePrimitives;
+
+    /**
+     * Primitive variables whose pointers are pruned in each context.
+     */
+    private final Set<Pair<Context, Var>> prunedVars = Sets.newSet();
+
+    /**
+     * Primitive static fields whose pointers are pruned.
+     */
+    private final Set<JField> prunedStaticFields = Sets.newSet();
+
+    /**
+     * Number of times that the points-to set of a pointer grows,
+     * which measures the propagation work of the solver.
+     */
+    private int updates = 0;
+
+    /**
+     * Number of waves of wave propagation.
+     */
+    private int waves = 0;
+
+    /**
+     * PFG edges which have been checked by lazy cycle detection.
+     */
+    private final Set<Pair<Pointer, Pointer>> checkedEdges = Sets.newSet();
+
+    /**
+     * Pointers which may be in PFG cycles and wait for cycle detection.
+     */
+    private final Set<Pointer> cycleCandidates = Sets.newHybridOrderedSet();
 
     private CSManager csManager;
 
     private CSCallGraph callGraph;
 
+    private final DispatchCache dispatchCache = new DispatchCache();
+
     private PointerFlowGraph pointerFlowGraph;
 
     private WorkList workList;
@@ -80,24 +237,83 @@ class Solver {
         this.options = options;
         this.heapModel = heapModel;
         this.contextSelector = contextSelector;
+        this.collapseCycles = options.getBooleanOrDefault("collapse-cycles", false);
+        this.wavePropagation = "wave".equals(options.getString("solver"));
+        this.sharePointsToSets = options.getBooleanOrDefault("share-points-to-sets", false);
+        this.filterTypes = options.getBooleanOrDefault("type-filter", false);
+        this.prunePrimitives = options.getBooleanOrDefault("prune-primitives", false);
+        this.checkpointer = new Checkpointer(options);
+        this.contextThreshold = options.get("context-threshold") != null
+                ? options.getInt("context-threshold") : 0;
+    }
+
+    /**
+     * Before the first work-list entry and every {@link #CHECK_INTERVAL}
+     * entries, degrades the context sensitivity if a budget is exceeded,
+     * and writes a checkpoint if the checkpoint interval has elapsed.
+     */
+    private void checkPeriodically() {
+        if (processedEntries++ % CHECK_INTERVAL != 0) {
+            return;
+        }
+        if (degrader.check(callGraph)) {
+            contextSelector = new CISelector();
+        }
+        checkpointer.writeIfDue(csManager, pointerFlowGraph, callGraph);
+    }
+
+    /**
+     * Reports the methods whose context depths are reduced.
+     */
+    private void reportReducedDepths() {
+        if (!reducedDepths.isEmpty()) {
+            logger.info("{} methods have reduced context depths ({} variables merged):",
+                    reducedDepths.size(), mergedVars);
+            reducedDepths.forEach((method, depth) ->
+                    logger.info("  {} (depth {})", method, depth));
+        }
     }
 
     void solve() {
         initialize();
         analyze();
+        pointerFlowGraph.freeze();
     }
 
     private void initialize() {
-        csManager = new MapBasedCSManager();
+        degrader = new Degrader(options);
+        baseSelector = contextSelector;
+        if (degrader.isLimited() || contextThreshold > 0) {
+            contextSelector = new SelectiveSelector(degrader.getSelectors(), contextSelector);
+        }
+        if (filterTypes) {
+            typeFilter = new TypeFilter();
+        }
+        if (sharePointsToSets) {
+            pointsToSetPool = new PointsToSetPool();
+            csManager = new SharedPointsToSetCSManager(pointsToSetPool);
+            pointerFlowGraph = new PointerFlowGraph(pointsToSetPool::make);
+        } else {
+            csManager = new ArrayBasedCSManager();
+            pointerFlowGraph = new PointerFlowGraph();
+        }
         callGraph = new CSCallGraph(csManager);
-        pointerFlowGraph = new PointerFlowGraph();
         workList = new WorkList();
         // process program entry, i.e., main method
+        // restored points-to sets must be present before any PFG edge
+        // is added, so that they are propagated along the new edges
+        List<Pointer> restored = checkpointer.restore(csManager, heapModel);
         Context defContext = contextSelector.getEmptyContext();
         JMethod main = World.get().getMainMethod();
         CSMethod csMethod = csManager.getCSMethod(defContext, main);
         callGraph.addEntryMethod(csMethod);
         addReachable(csMethod);
+        // re-derive the field/array accesses and calls on restored objects
+        for (Pointer pointer : restored) {
+            if (pointer instanceof CSVar) {
+                processMembers(pointer, pointer.getPointsToSet());
+            }
+        }
     }
 
     /**
@@ -106,99 +322,184 @@ class Solver {
     private void addReachable(CSMethod csMethod) {
         // TODO - finish me
         if (callGraph.addReachableMethod(csMethod)) {
-            StmtProcessor stmtProcessor = new StmtProcessor(csMethod);
-            for (Stmt stmt: csMethod.getMethod().getIR().getStmts()) {
-                stmt.accept(stmtProcessor);
+            MethodTemplate template = templates.computeIfAbsent(
+                    csMethod.getMethod(), m -> MethodTemplate.build(m, heapModel));
+            instantiate(template, csMethod);
+            if (contextThreshold > 0) {
+                checkContexts(csMethod);
             }
         }
     }
 
     /**
-     * Processes the statements in context-sensitive new reachable methods.
+     * Counts the new context of a method, and reduces the context depth
+     * of the method if it has more contexts than {@link #contextThreshold}.
      */
-    private class StmtProcessor implements StmtVisitor<Void> {
-
-        private final CSMethod csMethod;
-
-        private final Context context;
-
-        private StmtProcessor(CSMethod csMethod) {
-            this.csMethod = csMethod;
-            this.context = csMethod.getContext();
+    private void checkContexts(CSMethod csMethod) {
+        JMethod method = csMethod.getMethod();
+        csMethods.put(method, csMethod);
+        int count = contextCounts.merge(method, 1, Integer::sum);
+        if (count <= contextThreshold || mergingContexts
+                || pendingMerges.contains(method)
+                || degrader.isDegraded(method)) {
+            return;
         }
+        Set<CSMethod> contexts = csMethods.get(method);
+        int depth = reducedDepths.containsKey(method)
+                ? reducedDepths.get(method) - 1
+                : contexts.stream()
+                        .mapToInt(m -> m.getContext().getLength())
+                        .max()
+                        .orElse(0) - 1;
+        if (depth < 0) {
+            return;
+        }
+        logger.info("{} has {} contexts (average points-to set size {}),"
+                        + " reducing its context depth to {}",
+                method, count, String.format("%.2f", getAveragePtsSize(contexts)), depth);
+        reducedDepths.put(method, depth);
+        degrader.getSelectors().put(method, new TruncatedSelector(baseSelector, depth));
+        // the contexts are merged after the current work-list entry
+        // is processed, as merging collapses pointers
+        pendingMerges.add(method);
+    }
 
-        // TODO - if you choose to implement addReachable()
-        //  via visitor pattern, then finish me
+    /**
+     * @return the average size of the points-to sets of the
+     * variables of given context-sensitive methods.
+     */
+    private double getAveragePtsSize(Collection<CSMethod> methods) {
+        long vars = 0, objs = 0;
+        for (CSMethod m : methods) {
+            for (Var var : m.getMethod().getIR().getVars()) {
+                for (CSVar csVar : csManager.getCSVarsOf(var)) {
+                    if (csVar.getContext().equals(m.getContext())) {
+                        ++vars;
+                        objs += csVar.getPointsToSet().size();
+                    }
+                }
+            }
+        }
+        return vars == 0 ? 0 : (double) objs / vars;
+    }
 
-        @Override
-        public Void visit(New stmt) {
-            Obj obj = heapModel.getObj(stmt);
-            Context c = contextSelector.selectHeapContext(csMethod, obj);
-            workList.addEntry(csManager.getCSVar(context, stmt.getLValue()), PointsToSetFactory.make(csManager.getCSObj(c, obj)));
-            return StmtVisitor.super.visit(stmt);
+    /**
+     * Merges the existing contexts of the methods in {@link #pendingMerges}.
+     */
+    private void mergePendingContexts() {
+        mergingContexts = true;
+        for (JMethod method : List.copyOf(pendingMerges)) {
+            mergeContexts(method, reducedDepths.get(method));
         }
+        pendingMerges.clear();
+        mergingContexts = false;
+    }
 
-        @Override
-        public Void visit(Copy stmt) {
-            addPFGEdge(
-                    csManager.getCSVar(context, stmt.getRValue()),
-                    csManager.getCSVar(context, stmt.getLValue())
-            );
-            return StmtVisitor.super.visit(stmt);
+    /**
+     * Merges the existing contexts of method into their last depth
+     * elements, i.e., the variables of the contexts which have the same
+     * last elements are collapsed into the variable of the truncated
+     * context, so that they share one points-to set.
+     */
+    private void mergeContexts(JMethod method, int depth) {
+        Map<Context, Set<Context>> groups = Maps.newMap();
+        for (CSMethod m : List.copyOf(csMethods.get(method))) {
+            Context c = m.getContext();
+            groups.computeIfAbsent(TrieContext.makeLastK(c, depth),
+                    t -> Sets.newHybridSet()).add(c);
         }
+        groups.forEach((target, members) -> {
+            addReachable(csManager.getCSMethod(target, method));
+            for (Var var : method.getIR().getVars()) {
+                Pointer rep = pointerFlowGraph.getRepresentative(
+                        csManager.getCSVar(target, var));
+                Set<Pointer> merged = Sets.newHybridSet();
+                merged.add(rep);
+                for (CSVar csVar : csManager.getCSVarsOf(var)) {
+                    if (members.contains(csVar.getContext())) {
+                        merged.add(pointerFlowGraph.getRepresentative(csVar));
+                    }
+                }
+                if (isCollapsible(merged)) {
+                    mergedVars += merged.size() - 1;
+                    workList.addEntry(rep, pointerFlowGraph.collapse(rep, merged));
+                }
+            }
+        });
+        contextCounts.put(method, groups.size());
+    }
 
-        @Override
-        public Void visit(StoreField stmt) {
-            if (stmt.isStatic()) {
-                addPFGEdge(
-                        csManager.getCSVar(context, stmt.getRValue()),
-                        csManager.getStaticField(stmt.getLValue().getFieldRef().resolve())
-                );
+    /**
+     * Instantiates the template of a method in the context of csMethod.
+     */
+    private void instantiate(MethodTemplate template, CSMethod csMethod) {
+        Context context = csMethod.getContext();
+        for (MethodTemplate.Allocation alloc : template.getAllocations()) {
+            checkpointer.addAllocation(alloc.obj(), alloc.stmt());
+            Context heapContext = contextSelector.selectHeapContext(csMethod, alloc.obj());
+            workList.addEntry(csManager.getCSVar(context, alloc.var()),
+                    PointsToSetFactory.make(csManager.getCSObj(heapContext, alloc.obj())));
+        }
+        for (MethodTemplate.VarFlow copy : template.getCopies()) {
+            addPFGEdge(csManager.getCSVar(context, copy.source()),
+                    csManager.getCSVar(context, copy.target()));
+        }
+        for (MethodTemplate.StaticStore store : template.getStaticStores()) {
+            addPFGEdge(csManager.getCSVar(context, store.source()),
+                    csManager.getStaticField(store.field()));
+        }
+        for (MethodTemplate.StaticLoad load : template.getStaticLoads()) {
+            addPFGEdge(csManager.getStaticField(load.field()),
+                    csManager.getCSVar(context, load.target()));
+        }
+        for (Var var : template.getInertVars()) {
+            if (!isPruned(context, var)) {
+                csManager.getCSVar(context, var);
             }
-            return StmtVisitor.super.visit(stmt);
         }
-
-        @Override
-        public Void visit(LoadField stmt) {
-            if (stmt.isStatic()) {
-                addPFGEdge(
-                        csManager.getStaticField(stmt.getRValue().getFieldRef().resolve()),
-                        csManager.getCSVar(context, stmt.getLValue())
-                );
+        for (JField field : template.getInertStaticFields()) {
+            if (prunePrimitives) {
+                prunedStaticFields.add(field);
+            } else {
+                csManager.getStaticField(field);
             }
-            return StmtVisitor.super.visit(stmt);
         }
+        for (MethodTemplate.StaticCall call : template.getStaticCalls()) {
+            CSCallSite csCallSite = csManager.getCSCallSite(context, call.callSite());
+            Context calleeContext = contextSelector.selectContext(csCallSite, call.callee());
+            CSMethod csCallee = csManager.getCSMethod(calleeContext, call.callee());
+            if (callGraph.addEdge(new Edge<>(call.kind(), csCallSite, csCallee))) {
+                addReachable(csCallee);
+                addCallFlows(context, calleeContext, call.binding());
+            }
+        }
+    }
 
-        @Override
-        public Void visit(Invoke stmt) {
-            Context c = context;
-            if (stmt.isStatic()) {
-                JMethod method = resolveCallee(null, stmt);
-                CSCallSite csStmt = csManager.getCSCallSite(c, stmt);
-
-                Context ct = contextSelector.selectContext(csStmt, method);
-
-                CSMethod csMethod = csManager.getCSMethod(ct, method);
-                if (callGraph.addEdge(new Edge<>(CallGraphs.getCallKind(stmt), csStmt, csMethod))) {
-                    addReachable(csMethod);
-                    for (int i = 0; i < stmt.getRValue().getArgCount(); i ++) {
-                        // addEdge(ai, pi)
-                        addPFGEdge(
-                                csManager.getCSVar(c, stmt.getRValue().getArgs().get(i)),
-                                csManager.getCSVar(ct, method.getIR().getParams().get(i))
-                        );
-                    }
-                    for (Var ret: method.getIR().getReturnVars()) {
-                        // addEdge(ret, r)
-                        if (stmt.getLValue() != null)
-                            addPFGEdge(
-                                    csManager.getCSVar(ct, ret),
-                                    csManager.getCSVar(c, stmt.getLValue())
-                            );
-                    }
-                }
+    /**
+     * Adds the PFG edges of a new call edge from a call site in
+     * callerContext to a callee in calleeContext.
+     */
+    private void addCallFlows(Context callerContext, Context calleeContext,
+                              MethodTemplate.CallBinding binding) {
+        for (MethodTemplate.VarFlow param : binding.params()) {
+            // addEdge(ai, pi)
+            addPFGEdge(csManager.getCSVar(callerContext, param.source()),
+                    csManager.getCSVar(calleeContext, param.target()));
+        }
+        for (MethodTemplate.VarFlow ret : binding.returns()) {
+            // addEdge(ret, r)
+            addPFGEdge(csManager.getCSVar(calleeContext, ret.source()),
+                    csManager.getCSVar(callerContext, ret.target()));
+        }
+        for (Var var : binding.inertCallerVars()) {
+            if (!isPruned(callerContext, var)) {
+                csManager.getCSVar(callerContext, var);
+            }
+        }
+        for (Var var : binding.inertCalleeVars()) {
+            if (!isPruned(calleeContext, var)) {
+                csManager.getCSVar(calleeContext, var);
             }
-            return StmtVisitor.super.visit(stmt);
         }
     }
 
@@ -209,9 +510,62 @@ class Solver {
         // TODO - finish me
         if (pointerFlowGraph.addEdge(source, target)) {
             if (!source.getPointsToSet().isEmpty()) {
-                workList.addEntry(target, source.getPointsToSet());
+                addEntry(target, source.getPointsToSet());
+            }
+        }
+    }
+
+    /**
+     * Adds edges "source(o) -> target" to the PFG for each object o in objs,
+     * and propagates the objects of all new sources to target in one entry.
+     */
+    private void addPFGEdges(PointsToSet objs,
+                             Function<CSObj, ? extends Pointer> source,
+                             Pointer target) {
+        PointsToSet pointsToSet = PointsToSetFactory.make();
+        for (CSObj obj: objs) {
+            Pointer s = source.apply(obj);
+            if (pointerFlowGraph.addEdge(s, target)) {
+                pointsToSet.addAll(s.getPointsToSet());
             }
         }
+        if (!pointsToSet.isEmpty()) {
+            addEntry(target, pointsToSet);
+        }
+    }
+
+    /**
+     * Adds an entry to the work list, which propagates the objects
+     * in pointsToSet that can be pointed to by pointer.
+     */
+    private void addEntry(Pointer pointer, PointsToSet pointsToSet) {
+        PointsToSet objSet = filter(pointsToSet, pointer);
+        if (!objSet.isEmpty()) {
+            workList.addEntry(pointer, objSet);
+        }
+    }
+
+    /**
+     * @return the objects in pointsToSet which can be pointed to by target.
+     */
+    private PointsToSet filter(PointsToSet pointsToSet, Pointer target) {
+        return filterTypes ? typeFilter.filter(pointsToSet, target) : pointsToSet;
+    }
+
+    /**
+     * @return true if the pointers of given cycle can be collapsed.
+     * When filtering types, the pointers in a collapsed cycle must have
+     * the same type, as they share one points-to set.
+     */
+    private boolean isCollapsible(Collection<Pointer> cycle) {
+        if (cycle.size() <= 1) {
+            return false;
+        }
+        if (filterTypes) {
+            Type type = cycle.iterator().next().getType();
+            return cycle.stream().allMatch(p -> p.getType().equals(type));
+        }
+        return true;
     }
 
     /**
@@ -219,58 +573,178 @@ class Solver {
      */
     private void analyze() {
         // TODO - finish me
+        if (wavePropagation) {
+            analyzeInWaves();
+        } else {
+            while (!workList.isEmpty()) {
+                checkPeriodically();
+                WorkList.Entry entry =  workList.pollEntry();
+                Pointer ptr = pointerFlowGraph.getRepresentative(entry.pointer());
+                PointsToSet objSet = entry.pointsToSet();
+
+                PointsToSet deltaSet = propagate(ptr, objSet);
+                processMembers(ptr, deltaSet);
+                if (!cycleCandidates.isEmpty()) {
+                    collapseCycles();
+                }
+                if (!pendingMerges.isEmpty()) {
+                    mergePendingContexts();
+                }
+            }
+        }
+        degrader.report();
+        reportReducedDepths();
+        // the final checkpoint allows to restore the complete result
+        checkpointer.write(csManager, pointerFlowGraph, callGraph);
+        if (collapseCycles || wavePropagation) {
+            logger.info("{} pointers are collapsed into PFG cycles",
+                    pointerFlowGraph.getNumberOfCollapsedPointers());
+        }
+        logger.info("{} points-to set updates{}", updates,
+                wavePropagation ? " in " + waves + " waves" : "");
+    }
+
+    /**
+     * Wave propagation: each wave collapses the SCCs of PFG, and then
+     * propagates all pending objects in one sweep over the PFG in
+     * topological order, so that every pointer is processed at most once
+     * per wave and after all its predecessors. The edges added by
+     * processing the statements on variables (and call edges) take effect
+     * in the next wave, as the objects along them are put into the work list.
+     */
+    private void analyzeInWaves() {
         while (!workList.isEmpty()) {
-            WorkList.Entry entry =  workList.pollEntry();
-            Pointer ptr = entry.pointer(); PointsToSet objSet = entry.pointsToSet();
-
-            PointsToSet deltaSet = propagate(ptr, objSet);
-            if (ptr instanceof CSVar) {
-                Var var = ((CSVar) ptr).getVar();
-                Context c = ((CSVar) ptr).getContext();
-                for (CSObj obj: deltaSet) {
-
-                    // x.f = y
-                    for (StoreField storeField: var.getStoreFields()) {
-                        // addEdge(y, o.f)
-                        addPFGEdge(
-                                csManager.getCSVar(c, storeField.getRValue()),
-                                csManager.getInstanceField(obj, storeField.getLValue().getFieldRef().resolve())
-                        );
+            ++waves;
+            List<WorkList.Entry> entries = new ArrayList<>();
+            while (!workList.isEmpty()) {
+                entries.add(workList.pollEntry());
+            }
+            // collapse cycles and order the PFG topologically
+            Map<Pointer, PointsToSet> pending = Maps.newMap();
+            List<Pointer> order = new ArrayList<>();
+            for (List<Pointer> scc : pointerFlowGraph.getSCCsInTopologicalOrder(
+                    Lists.map(entries, WorkList.Entry::pointer))) {
+                Pointer rep = scc.get(0);
+                if (isCollapsible(scc)) {
+                    addPending(pending, rep, pointerFlowGraph.collapse(rep, scc));
+                    order.add(rep);
+                } else {
+                    order.addAll(scc);
+                }
+            }
+            entries.forEach(entry -> addPending(pending,
+                    pointerFlowGraph.getRepresentative(entry.pointer()),
+                    entry.pointsToSet()));
+            // sweep
+            for (Pointer ptr : order) {
+                PointsToSet objSet = pending.remove(ptr);
+                if (objSet == null) {
+                    continue;
+                }
+                checkPeriodically();
+                PointsToSet deltaSet = PointsToSetFactory.make();
+                for (CSObj obj : objSet) {
+                    if (!ptr.getPointsToSet().contains(obj)) {
+                        deltaSet.addObject(obj);
                     }
+                }
+                if (!deltaSet.isEmpty()) {
+                    ++updates;
+                    ptr.getPointsToSet().addAll(deltaSet);
+                    for (Pointer succ : pointerFlowGraph.getSuccsOf(ptr)) {
+                        PointsToSet succSet = filter(deltaSet, succ);
+                        if (!succSet.isEmpty()) {
+                            addPending(pending, pointerFlowGraph.getRepresentative(succ), succSet);
+                        }
+                    }
+                    processMembers(ptr, deltaSet);
+                }
+            }
+            // objects which flow along new edges to swept pointers
+            pending.forEach(workList::addEntry);
+            if (!pendingMerges.isEmpty()) {
+                mergePendingContexts();
+            }
+        }
+    }
 
-                    // y = x.f
-                    for (LoadField loadField: var.getLoadFields()) {
-                        // addEdge(o.f, y)
-                        addPFGEdge(
-                                csManager.getInstanceField(obj, loadField.getRValue().getFieldRef().resolve()),
-                                csManager.getCSVar(c, loadField.getLValue())
-                        );
+    private static void addPending(Map<Pointer, PointsToSet> pending,
+                                   Pointer pointer, PointsToSet pointsToSet) {
+        pending.computeIfAbsent(pointer, p -> PointsToSetFactory.make()).addAll(pointsToSet);
+    }
+
+    /**
+     * Processes the statements on the variables represented by ptr
+     * for the new objects in deltaSet.
+     */
+    private void processMembers(Pointer ptr, PointsToSet deltaSet) {
+        for (Pointer member : pointerFlowGraph.getMembers(ptr)) {
+            if (member instanceof CSVar csVar) {
+                Var var = csVar.getVar();
+                Context c = csVar.getContext();
+                // x.f = y
+                for (StoreField storeField: var.getStoreFields()) {
+                    if (isPruned(c, storeField.getRValue())) {
+                        continue;
+                    }
+                    // addEdge(y, o.f)
+                    CSVar from = csManager.getCSVar(c, storeField.getRValue());
+                    JField field = storeField.getFieldRef().resolve();
+                    for (CSObj obj: deltaSet) {
+                        addPFGEdge(from, csManager.getInstanceField(obj, field));
                     }
+                }
 
-                    // x[i] = y
-                    for (StoreArray storeArray: var.getStoreArrays()) {
-                        // addEdge(y, o.arr)
-                        addPFGEdge(
-                                csManager.getCSVar(c, storeArray.getRValue()),
-                                csManager.getArrayIndex(obj)
-                        );
+                // y = x.f
+                for (LoadField loadField: var.getLoadFields()) {
+                    if (isPruned(c, loadField.getLValue())) {
+                        continue;
                     }
+                    // addEdge(o.f, y)
+                    JField field = loadField.getFieldRef().resolve();
+                    addPFGEdges(deltaSet, obj -> csManager.getInstanceField(obj, field),
+                            csManager.getCSVar(c, loadField.getLValue()));
+                }
 
-                    // y = x[i]
-                    for (LoadArray loadArray: var.getLoadArrays()) {
-                        // addEdge(o.arr, y)
-                        addPFGEdge(
-                                csManager.getArrayIndex(obj),
-                                csManager.getCSVar(c, loadArray.getLValue())
-                        );
+                // x[i] = y
+                for (StoreArray storeArray: var.getStoreArrays()) {
+                    if (isPruned(c, storeArray.getRValue())) {
+                        continue;
+                    }
+                    // addEdge(y, o.arr)
+                    CSVar from = csManager.getCSVar(c, storeArray.getRValue());
+                    for (CSObj obj: deltaSet) {
+                        addPFGEdge(from, csManager.getArrayIndex(obj));
                     }
+                }
 
-                    processCall((CSVar) ptr, obj);
+                // y = x[i]
+                for (LoadArray loadArray: var.getLoadArrays()) {
+                    if (isPruned(c, loadArray.getLValue())) {
+                        continue;
+                    }
+                    // addEdge(o.arr, y)
+                    addPFGEdges(deltaSet, csManager::getArrayIndex,
+                            csManager.getCSVar(c, loadArray.getLValue()));
                 }
+                processCall(csVar, deltaSet);
             }
         }
     }
 
+    /**
+     * @return whether the pointer of given variable in given context is
+     * pruned, i.e., primitive pointers are pruned and the variable is
+     * primitive. The pruned pointer is recorded for statistics.
+     */
+    private boolean isPruned(Context context, Var var) {
+        if (prunePrimitives && !MethodTemplate.isReference(var.getType())) {
+            prunedVars.add(new Pair<>(context, var));
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Propagates pointsToSet to pt(pointer) and its PFG successors,
      * returns the difference set of pointsToSet and pt(pointer).
@@ -284,53 +758,93 @@ class Solver {
                 deltaSet.addObject(obj);
 
         if (!deltaSet.isEmpty()) {
+            ++updates;
             // Union
-            for (CSObj obj: deltaSet)
-                pointer.getPointsToSet().addObject(obj);
+            pointer.getPointsToSet().addAll(deltaSet);
+            if (collapseCycles) {
+                detectCycleCandidates(pointer, deltaSet);
+            }
             // Propagate
             for (Pointer ptr: pointerFlowGraph.getSuccsOf(pointer))
-                workList.addEntry(ptr, deltaSet);
+                addEntry(ptr, deltaSet);
         }
 
         return deltaSet;
     }
 
+    /**
+     * Lazy cycle detection: if the new objects of pointer add nothing to
+     * one of its successors, and both have points-to sets of the same size,
+     * then the successor already received the same delta, which hints
+     * (but does not prove) that they are in a PFG cycle. Such pointers
+     * are only recorded as candidates, and {@link #collapseCycles()}
+     * collapses a cycle only after {@link PointerFlowGraph#getSCCOf}
+     * confirms it. Only deltaSet is scanned, and each edge is checked
+     * at most once.
+     */
+    private void detectCycleCandidates(Pointer pointer, PointsToSet deltaSet) {
+        int size = pointer.getPointsToSet().size();
+        for (Pointer succ : pointerFlowGraph.getSuccsOf(pointer)) {
+            PointsToSet succPts = succ.getPointsToSet();
+            if (succPts.size() == size
+                    && deltaSet.objects().allMatch(succPts::contains)
+                    && checkedEdges.add(new Pair<>(pointer, succ))) {
+                cycleCandidates.add(pointer);
+            }
+        }
+    }
+
+    /**
+     * Collapses the PFG cycles through the candidate pointers, and
+     * propagates the objects that reached only part of each cycle
+     * to the whole cycle.
+     */
+    private void collapseCycles() {
+        for (Pointer candidate : cycleCandidates) {
+            Pointer rep = pointerFlowGraph.getRepresentative(candidate);
+            Set<Pointer> scc = pointerFlowGraph.getSCCOf(rep);
+            if (isCollapsible(scc)) {
+                workList.addEntry(rep, pointerFlowGraph.collapse(rep, scc));
+            }
+        }
+        cycleCandidates.clear();
+    }
+
     /**
      * Processes instance calls when points-to set of the receiver variable changes.
+     * The new receiver objects are grouped by the context-sensitive callees
+     * they dispatch to, so that each callee receives its objects on its
+     * this variable at once, and each call edge is added at most once.
      *
-     * @param recv    the receiver variable
-     * @param recvObj set of new discovered objects pointed by the variable.
+     * @param recv     the receiver variable
+     * @param deltaSet set of new discovered objects pointed by the variable.
      */
-    private void processCall(CSVar recv, CSObj recvObj) {
+    private void processCall(CSVar recv, PointsToSet deltaSet) {
         // TODO - finish me
         Context c = recv.getContext();
         for (Invoke callSite: recv.getVar().getInvokes()) {
-            JMethod method = resolveCallee(recvObj, callSite);
             CSCallSite csCallSite = csManager.getCSCallSite(c, callSite);
-
-            Context ct = contextSelector.selectContext(csCallSite, recvObj, method);
-
-            workList.addEntry(csManager.getCSVar(ct, method.getIR().getThis()), PointsToSetFactory.make(recvObj));
-
-            CSMethod csMethod = csManager.getCSMethod(ct, method);
-            if (callGraph.addEdge(new Edge<>(CallGraphs.getCallKind(callSite), csCallSite, csMethod))) {
-                addReachable(csMethod);
-                for (int i = 0; i < callSite.getRValue().getArgCount(); i ++) {
-                    // addEdge(ai, pi)
-                    addPFGEdge(
-                            csManager.getCSVar(c, callSite.getRValue().getArgs().get(i)),
-                            csManager.getCSVar(ct, method.getIR().getParams().get(i))
-                    );
+            Map<CSMethod, PointsToSet> recvObjs = new LinkedHashMap<>();
+            for (CSObj recvObj : deltaSet) {
+                JMethod method = resolveCallee(recvObj, callSite);
+                Context ct = contextSelector.selectContext(csCallSite, recvObj, method);
+                recvObjs.computeIfAbsent(csManager.getCSMethod(ct, method),
+                        m -> PointsToSetFactory.make()).addObject(recvObj);
+            }
+            recvObjs.forEach((csMethod, objs) -> {
+                JMethod method = csMethod.getMethod();
+                Context ct = csMethod.getContext();
+                CSVar thisVar = csManager.getCSVar(ct, method.getIR().getThis());
+                PointsToSet thisPts = thisVar.getPointsToSet();
+                if (!objs.objects().allMatch(thisPts::contains)) {
+                    workList.addEntry(thisVar, objs);
                 }
-                for (Var ret: method.getIR().getReturnVars()) {
-                    // addEdge(ret, r)
-                    if (callSite.getLValue() != null)
-                        addPFGEdge(
-                                csManager.getCSVar(ct, ret),
-                                csManager.getCSVar(c, callSite.getLValue())
-                        );
+                if (!callGraph.hasEdge(csCallSite, csMethod) && callGraph.addEdge(
+                        new Edge<>(CallGraphs.getCallKind(callSite), csCallSite, csMethod))) {
+                    addReachable(csMethod);
+                    addCallFlows(c, ct, MethodTemplate.bind(callSite, method));
                 }
-            }
+            });
         }
     }
 
@@ -344,12 +858,18 @@ class Solver {
      */
     private JMethod resolveCallee(CSObj recv, Invoke callSite) {
         Type type = recv != null ? recv.getObject().getType() : null;
-        return CallGraphs.resolveCallee(type, callSite);
+        return dispatchCache.resolveCallee(type, callSite);
     }
 
     PointerAnalysisResult getResult() {
         if (result == null) {
             result = new PointerAnalysisResultImpl(csManager, callGraph);
+            result.storeResult(DispatchCache.class.getName(), dispatchCache);
+            result.storeResult(ResultProcessor.PRUNED_POINTERS,
+                    prunedVars.size() + prunedStaticFields.size());
+            if (pointsToSetPool != null) {
+                result.storeResult(PointsToSetPool.class.getName(), pointsToSetPool);
+            }
         }
         return result;
     }
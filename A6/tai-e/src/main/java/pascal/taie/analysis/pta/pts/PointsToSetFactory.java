@@ -47,4 +47,11 @@ public class PointsToSetFactory {
         set.addObject(obj);
         return set;
     }
+
+    /**
+     * @return a points-to set which can be updated by multiple threads.
+     */
+    public static PointsToSet makeConcurrent() {
+        return new DelegatePointsToSet(Sets.newConcurrentSet());
+    }
 }
@@ -0,0 +1,150 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hash-consing pool of points-to sets.
+ * <p>
+ * The points-to sets made by this pool hold immutable canonical sets
+ * of objects, so that all points-to sets with identical objects share
+ * one underlying set. A points-to set is copied when it grows, and the
+ * canonical sets that are no longer held by any points-to set are
+ * released from this pool.
+ */
+public class PointsToSetPool {
+
+    /**
+     * Map from the content of each canonical set to the canonical set.
+     */
+    private final Map<Set<CSObj>, Canonical> canonicals = Maps.newMap();
+
+    /**
+     * Canonical empty set, which is never released.
+     */
+    private final Canonical empty;
+
+    public PointsToSetPool() {
+        empty = intern(Set.of());
+    }
+
+    /**
+     * @return a new empty points-to set backed by this pool.
+     */
+    public PointsToSet make() {
+        return new SharedPointsToSet(this);
+    }
+
+    /**
+     * @return true if given points-to set is made by this pool.
+     */
+    public boolean owns(PointsToSet pts) {
+        return pts instanceof SharedPointsToSet shared && shared.getPool() == this;
+    }
+
+    /**
+     * @return the number of canonical sets in this pool.
+     */
+    public int getNumberOfSets() {
+        return canonicals.size();
+    }
+
+    /**
+     * @return the number of points-to sets holding the canonical sets
+     * in this pool.
+     */
+    public long getNumberOfReferences() {
+        long refs = 0;
+        for (Canonical canonical : canonicals.values()) {
+            refs += canonical.refs;
+        }
+        // excludes the reference held by this pool to the empty set
+        return refs - 1;
+    }
+
+    /**
+     * @return the number of objects stored in the canonical sets.
+     */
+    public long getNumberOfStoredObjects() {
+        long objs = 0;
+        for (Canonical canonical : canonicals.values()) {
+            objs += canonical.set.size();
+        }
+        return objs;
+    }
+
+    /**
+     * @return the number of objects in all points-to sets made by this
+     * pool, i.e., the objects that would be stored without sharing.
+     */
+    public long getNumberOfReferencedObjects() {
+        long objs = 0;
+        for (Canonical canonical : canonicals.values()) {
+            objs += (long) canonical.refs * canonical.set.size();
+        }
+        return objs;
+    }
+
+    /**
+     * Returns the canonical set with the same objects as given set,
+     * and adds a reference to it. Given set must not be modified afterwards.
+     */
+    Canonical intern(Set<CSObj> set) {
+        Canonical canonical = canonicals.get(set);
+        if (canonical == null) {
+            canonical = new Canonical(Collections.unmodifiableSet(set));
+            canonicals.put(set, canonical);
+        }
+        ++canonical.refs;
+        return canonical;
+    }
+
+    /**
+     * Removes a reference to given canonical set.
+     */
+    void release(Canonical canonical) {
+        if (--canonical.refs == 0 && canonical != empty) {
+            canonicals.remove(canonical.set);
+        }
+    }
+
+    /**
+     * Canonical set of objects, with the number of points-to sets holding it.
+     */
+    static class Canonical {
+
+        final Set<CSObj> set;
+
+        private int refs = 0;
+
+        private Canonical(Set<CSObj> set) {
+            this.set = set;
+        }
+    }
+}
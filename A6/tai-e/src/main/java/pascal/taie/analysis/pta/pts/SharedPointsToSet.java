@@ -0,0 +1,115 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Points-to set backed by a canonical set of {@link PointsToSetPool}.
+ * The canonical set is never modified; adding objects replaces it by
+ * the canonical set of the enlarged content (copy-on-write).
+ */
+class SharedPointsToSet implements PointsToSet {
+
+    private final PointsToSetPool pool;
+
+    private PointsToSetPool.Canonical canonical;
+
+    SharedPointsToSet(PointsToSetPool pool) {
+        this.pool = pool;
+        this.canonical = pool.intern(Set.of());
+    }
+
+    PointsToSetPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public boolean addObject(CSObj obj) {
+        if (contains(obj)) {
+            return false;
+        }
+        Set<CSObj> set = Sets.newHybridSet(canonical.set);
+        set.add(obj);
+        update(set);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(PointsToSet pts) {
+        Set<CSObj> set = null;
+        for (CSObj obj : pts) {
+            if (!contains(obj)) {
+                if (set == null) {
+                    set = Sets.newHybridSet(canonical.set);
+                }
+                set.add(obj);
+            }
+        }
+        if (set == null) {
+            return false;
+        }
+        update(set);
+        return true;
+    }
+
+    private void update(Set<CSObj> set) {
+        PointsToSetPool.Canonical old = canonical;
+        canonical = pool.intern(set);
+        pool.release(old);
+    }
+
+    @Override
+    public boolean contains(CSObj obj) {
+        return canonical.set.contains(obj);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return canonical.set.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return canonical.set.size();
+    }
+
+    @Override
+    public Set<CSObj> getObjects() {
+        return canonical.set;
+    }
+
+    @Override
+    public Stream<CSObj> objects() {
+        return canonical.set.stream();
+    }
+
+    @Override
+    public String toString() {
+        return canonical.set.toString();
+    }
+}
@@ -72,6 +72,158 @@ public class CSPTATest {
         Tests.testCSPTA(DIR, "Array");
     }
 
+    @Test
+    public void testTwoObjectCollapseCycles() {
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", "collapse-cycles:true");
+    }
+
+    @Test
+    public void testAssignCollapseCycles() {
+        Tests.testCSPTA(DIR, "Assign", "collapse-cycles:true");
+    }
+
+    @Test
+    public void testTwoObjectWave() {
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", "solver:wave");
+    }
+
+    @Test
+    public void testArrayWave() {
+        Tests.testCSPTA(DIR, "Array", "solver:wave");
+    }
+
+    @Test
+    public void testTwoCallSharePointsToSets() {
+        Tests.testCSPTA(DIR, "TwoCall", "cs:2-call", "share-points-to-sets:true");
+    }
+
+    @Test
+    public void testArraySharePointsToSets() {
+        Tests.testCSPTA(DIR, "Array", "share-points-to-sets:true", "collapse-cycles:true");
+    }
+
+    @Test
+    public void testInstanceFieldTypeFilter() {
+        Tests.testCSPTA(DIR, "InstanceField", "type-filter:true");
+    }
+
+    @Test
+    public void testTwoObjectTypeFilter() {
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", "type-filter:true", "solver:wave");
+    }
+
+    @Test
+    public void testTwoObjectScaler() {
+        // within the default threshold, Scaler selects 2-obj for all methods
+        Tests.testCSPTA(DIR, "TwoObject", "cs:scaler");
+    }
+
+    @Test
+    public void testTwoObjectScalerCheckpoint() {
+        // the pre-analysis of Scaler neither writes nor resumes from
+        // the checkpoint of the 2-obj main analysis
+        String checkpoint = "checkpoint:build/tmp/TwoObject-scaler.ckpt";
+        Tests.testCSPTA(DIR, "TwoObject", "cs:scaler", checkpoint);
+        Tests.testCSPTA(DIR, "TwoObject", "cs:scaler", checkpoint, "resume:true");
+    }
+
+    @Test
+    public void testTwoCallWithinBudget() {
+        Tests.testCSPTA(DIR, "TwoCall", "cs:2-call",
+                "time-budget:3600", "heap-budget:65536");
+    }
+
+    @Test
+    public void testCallExceedingBudget() {
+        // the heap in use already exceeds 1MB at the first check, thus the
+        // analysis falls back to context insensitivity before any call edge
+        Tests.testCSPTA(DIR, "Call", "cs:2-call", "heap-budget:1");
+    }
+
+    @Test
+    public void testTwoObjectWithinContextThreshold() {
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", "context-threshold:100");
+    }
+
+    @Test
+    public void testContextThreshold() {
+        // id() exceeds 3 contexts, thus its call-site contexts are merged
+        // into the empty context, and each of x1..x4 soundly points to
+        // both arguments
+        Tests.testCSPTA(DIR, "ContextThreshold", "cs:1-call", "context-threshold:3");
+    }
+
+    @Test
+    public void testTwoObjectResume() {
+        String checkpoint = "checkpoint:build/tmp/TwoObject-cspta.ckpt";
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", checkpoint);
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", checkpoint, "resume:true");
+    }
+
+    @Test
+    public void testTwoObjectIncremental() {
+        String checkpoint = "checkpoint:build/tmp/TwoObject-incremental.ckpt";
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", checkpoint);
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", checkpoint, "resume:true",
+                "changed-methods:['<List: void add(java.lang.Object)>']");
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", checkpoint, "resume:true",
+                "changed-methods:['<TwoObject: void m()>']");
+    }
+
+    @Test
+    public void testTwoObjectHeapLimit() {
+        // 2-obj uses heap contexts of length 1 by default
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj+1h");
+    }
+
+    @Test
+    public void testTwoObjectParallel() {
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", "solver:parallel", "threads:4");
+    }
+
+    @Test
+    public void testTwoCallParallelTypeFilter() {
+        Tests.testCSPTA(DIR, "TwoCall", "cs:2-call", "type-filter:true",
+                "solver:parallel", "threads:4");
+    }
+
+    @Test
+    public void testTwoObjectHybrid() {
+        // all objects matched by a 2-obj rule are analyzed as by 2-obj
+        Tests.testCSPTA(DIR, "TwoObject", "cs:hybrid", "hybrid-policy:['**=2-obj']");
+    }
+
+    @Test
+    public void testHybridMixedPolicy() {
+        // lists are analyzed by 2-obj, their iterators by 1-type (thus
+        // the two iterators share context [List] and their elements are
+        // mixed), and the other objects by 1-call
+        Tests.testCSPTA(DIR, "Hybrid", "cs:hybrid",
+                "hybrid-policy:['List=2-obj', 'List$*=1-type', '**=1-call']");
+    }
+
+    @Test
+    public void testTwoObjectBelowMergeThreshold() {
+        // no type is allocated at more than 100 sites, thus nothing is merged
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", "merge-type-threshold:100");
+    }
+
+    @Test
+    public void testTypeMerging() {
+        // A and B are allocated at two sites each, thus their sites are
+        // merged, and x points to the merged B, unlike OneObject
+        Tests.testCSPTA(DIR, "TypeMerging", "cs:1-obj", "merge-type-threshold:1");
+        Tests.testCSPTA(DIR, "TypeMerging", "cs:1-obj", "merge-types:['A', 'B']");
+    }
+
+    @Test
+    public void testOneCallPrunePrimitives() {
+        // pruned primitive pointers match their empty points-to sets
+        Tests.testCSPTA(DIR, "OneCall", "cs:1-call", "prune-primitives:true");
+        Tests.testCSPTA(DIR, "OneCall", "cs:1-call", "prune-primitives:true",
+                "solver:parallel", "threads:4");
+    }
+
     public static void main(String[] args) {
         CSPTATest test = new CSPTATest();
 //        test.testNew();
@@ -88,4 +240,5 @@ public class CSPTATest {
 //        test.testStaticField();
 //        test.testArray();
     }
+
 }
@@ -0,0 +1,27 @@
+class ContextThreshold {
+    public static void main(String[] args) {
+        m();
+    }
+
+    static void m() {
+        A a = new A();
+        B b = new B();
+        C c = new C();
+        Object x1 = a.id(b);
+        Object x2 = a.id(c);
+        Object x3 = a.id(b);
+        Object x4 = a.id(c);
+    }
+}
+
+class A {
+    Object id(Object o) {
+        return o;
+    }
+}
+
+class B {
+}
+
+class C {
+}
@@ -27,6 +27,8 @@ import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.core.cs.selector.CISelector;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
 import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.demand.DemandDrivenResult;
 import pascal.taie.analysis.pta.plugin.ResultProcessor;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.config.AnalysisOptions;
@@ -50,15 +52,30 @@ public class CSPTA extends ProgramAnalysis {
     @Override
     public PointerAnalysisResult analyze() {
         AnalysisOptions options = getOptions();
-        Solver solver = new Solver(options,
-                new AllocationSiteBasedModel(options),
-                getContextSelector(options.getString("cs")));
-        solver.solve();
-        PointerAnalysisResult result = solver.getResult();
+        HeapModel heapModel = new AllocationSiteBasedModel(options);
+        PointerAnalysisResult result;
+        if (options.getBooleanOrDefault("demand-driven", false)) {
+            long budget = options.get("demand-budget") != null
+                    ? options.getInt("demand-budget") : 100000;
+            // the whole-program analysis runs only if the demand-driven
+            // queries cannot answer the clients
+            result = new DemandDrivenResult(heapModel, budget,
+                    () -> solve(options, heapModel));
+        } else {
+            result = solve(options, heapModel);
+        }
         ResultProcessor.process(options, result);
         return result;
     }
 
+    private static PointerAnalysisResult solve(AnalysisOptions options,
+                                               HeapModel heapModel) {
+        Solver solver = new Solver(options, heapModel,
+                getContextSelector(options.getString("cs")));
+        solver.solve();
+        return solver.getResult();
+    }
+
     private static ContextSelector getContextSelector(String cs) {
         if (cs.equals("ci")) {
             return new CISelector();
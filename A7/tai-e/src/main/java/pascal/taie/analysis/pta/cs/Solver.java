@@ -55,6 +55,8 @@ import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.type.Type;
 
+import java.util.function.Function;
+
 class Solver {
 
     private static final Logger logger = LogManager.getLogger(Solver.class);
@@ -214,6 +216,25 @@ class Solver {
         }
     }
 
+    /**
+     * Adds edges "source(o) -> target" to the PFG for each object o in objs,
+     * and propagates the objects of all new sources to target in one entry.
+     */
+    private void addPFGEdges(PointsToSet objs,
+                             Function<CSObj, ? extends Pointer> source,
+                             Pointer target) {
+        PointsToSet pointsToSet = PointsToSetFactory.make();
+        for (CSObj obj: objs) {
+            Pointer s = source.apply(obj);
+            if (pointerFlowGraph.addEdge(s, target)) {
+                pointsToSet.addAll(s.getPointsToSet());
+            }
+        }
+        if (!pointsToSet.isEmpty()) {
+            workList.addEntry(target, pointsToSet);
+        }
+    }
+
     /**
      * Processes work-list entries until the work-list is empty.
      */
@@ -227,44 +248,41 @@ class Solver {
             if (ptr instanceof CSVar) {
                 Var var = ((CSVar) ptr).getVar();
                 Context c = ((CSVar) ptr).getContext();
-                for (CSObj obj: deltaSet) {
-
-                    // x.f = y
-                    for (StoreField storeField: var.getStoreFields()) {
-                        // addEdge(y, o.f)
-                        addPFGEdge(
-                                csManager.getCSVar(c, storeField.getRValue()),
-                                csManager.getInstanceField(obj, storeField.getLValue().getFieldRef().resolve())
-                        );
+                // x.f = y
+                for (StoreField storeField: var.getStoreFields()) {
+                    // addEdge(y, o.f)
+                    CSVar from = csManager.getCSVar(c, storeField.getRValue());
+                    JField field = storeField.getFieldRef().resolve();
+                    for (CSObj obj: deltaSet) {
+                        addPFGEdge(from, csManager.getInstanceField(obj, field));
                     }
+                }
 
-                    // y = x.f
-                    for (LoadField loadField: var.getLoadFields()) {
-                        // addEdge(o.f, y)
-                        addPFGEdge(
-                                csManager.getInstanceField(obj, loadField.getRValue().getFieldRef().resolve()),
-                                csManager.getCSVar(c, loadField.getLValue())
-                        );
-                    }
+                // y = x.f
+                for (LoadField loadField: var.getLoadFields()) {
+                    // addEdge(o.f, y)
+                    JField field = loadField.getFieldRef().resolve();
+                    addPFGEdges(deltaSet, obj -> csManager.getInstanceField(obj, field),
+                            csManager.getCSVar(c, loadField.getLValue()));
+                }
 
-                    // x[i] = y
-                    for (StoreArray storeArray: var.getStoreArrays()) {
-                        // addEdge(y, o.arr)
-                        addPFGEdge(
-                                csManager.getCSVar(c, storeArray.getRValue()),
-                                csManager.getArrayIndex(obj)
-                        );
+                // x[i] = y
+                for (StoreArray storeArray: var.getStoreArrays()) {
+                    // addEdge(y, o.arr)
+                    CSVar from = csManager.getCSVar(c, storeArray.getRValue());
+                    for (CSObj obj: deltaSet) {
+                        addPFGEdge(from, csManager.getArrayIndex(obj));
                     }
+                }
 
-                    // y = x[i]
-                    for (LoadArray loadArray: var.getLoadArrays()) {
-                        // addEdge(o.arr, y)
-                        addPFGEdge(
-                                csManager.getArrayIndex(obj),
-                                csManager.getCSVar(c, loadArray.getLValue())
-                        );
-                    }
+                // y = x[i]
+                for (LoadArray loadArray: var.getLoadArrays()) {
+                    // addEdge(o.arr, y)
+                    addPFGEdges(deltaSet, csManager::getArrayIndex,
+                            csManager.getCSVar(c, loadArray.getLValue()));
+                }
 
+                for (CSObj obj: deltaSet) {
                     processCall((CSVar) ptr, obj);
                 }
             }
@@ -0,0 +1,203 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.demand;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
+import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.cs.element.CSVar;
+import pascal.taie.analysis.pta.core.cs.element.InstanceField;
+import pascal.taie.analysis.pta.core.cs.element.StaticField;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.AbstractResultHolder;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Pointer analysis result which answers the points-to queries of
+ * variables and fields on demand by {@link DemandSolver}, so that
+ * the clients that only query a few pointers do not pay for the
+ * whole-program analysis.
+ * <p>
+ * The whole-program result is computed on the first query that exceeds
+ * the budget of the demand-driven solver or that needs the whole program,
+ * e.g., {@link #getVars()} and {@link #getCallGraph()}. After that,
+ * all queries are answered by the whole-program result, which may be
+ * more precise, as the demand-driven solver is context-insensitive and
+ * considers all methods reachable in the call graph built by class
+ * hierarchy analysis. Both results are sound, and they share the heap
+ * model, so that their objects can be compared.
+ */
+public class DemandDrivenResult extends AbstractResultHolder
+        implements PointerAnalysisResult {
+
+    private static final Logger logger = LogManager.getLogger(DemandDrivenResult.class);
+
+    private final DemandSolver solver;
+
+    /**
+     * Maximum number of steps of the demand-driven solver for each query.
+     */
+    private final long budget;
+
+    private final Supplier<PointerAnalysisResult> wholeProgramAnalysis;
+
+    private PointerAnalysisResult wholeProgramResult;
+
+    private int demandQueries = 0;
+
+    /**
+     * @param heapModel            the heap model of wholeProgramAnalysis.
+     * @param budget               maximum number of steps for each query.
+     * @param wholeProgramAnalysis computes the whole-program result.
+     */
+    public DemandDrivenResult(HeapModel heapModel, long budget,
+                              Supplier<PointerAnalysisResult> wholeProgramAnalysis) {
+        this.solver = new DemandSolver(heapModel);
+        this.budget = budget;
+        this.wholeProgramAnalysis = wholeProgramAnalysis;
+    }
+
+    /**
+     * @return the whole-program result, which is computed on the first call.
+     */
+    private PointerAnalysisResult getWholeProgramResult() {
+        if (wholeProgramResult == null) {
+            logger.info("Computing whole-program result after {} demand-driven" +
+                    " queries ({} steps)", demandQueries, solver.getSteps());
+            wholeProgramResult = wholeProgramAnalysis.get();
+        }
+        return wholeProgramResult;
+    }
+
+    /**
+     * @return the points-to set of given pointer of {@link DemandSolver},
+     * or null if it cannot be computed within the budget.
+     */
+    private Set<Obj> query(Object pointer) {
+        if (wholeProgramResult != null) {
+            return null;
+        }
+        ++demandQueries;
+        Set<Obj> pts = solver.query(pointer, budget);
+        if (pts == null) {
+            logger.info("Demand-driven query of {} exceeds the budget", pointer);
+        }
+        return pts;
+    }
+
+    @Override
+    public Set<Obj> getPointsToSet(Var var) {
+        Set<Obj> pts = query(var);
+        return pts != null ? Collections.unmodifiableSet(pts)
+                : getWholeProgramResult().getPointsToSet(var);
+    }
+
+    @Override
+    public Set<Obj> getPointsToSet(Var base, JField field) {
+        Set<Obj> bases = query(base);
+        if (bases != null) {
+            Set<Obj> result = Sets.newHybridSet();
+            for (Obj obj : Set.copyOf(bases)) {
+                Set<Obj> pts = query(new DemandSolver.InstanceField(obj, field));
+                if (pts == null) {
+                    return getWholeProgramResult().getPointsToSet(base, field);
+                }
+                result.addAll(pts);
+            }
+            return Collections.unmodifiableSet(result);
+        }
+        return getWholeProgramResult().getPointsToSet(base, field);
+    }
+
+    @Override
+    public Set<Obj> getPointsToSet(JField field) {
+        Set<Obj> pts = query(field);
+        return pts != null ? Collections.unmodifiableSet(pts)
+                : getWholeProgramResult().getPointsToSet(field);
+    }
+
+    @Override
+    public Collection<CSVar> getCSVars() {
+        return getWholeProgramResult().getCSVars();
+    }
+
+    @Override
+    public Collection<Var> getVars() {
+        return getWholeProgramResult().getVars();
+    }
+
+    @Override
+    public Collection<InstanceField> getInstanceFields() {
+        return getWholeProgramResult().getInstanceFields();
+    }
+
+    @Override
+    public Collection<ArrayIndex> getArrayIndexes() {
+        return getWholeProgramResult().getArrayIndexes();
+    }
+
+    @Override
+    public Collection<StaticField> getStaticFields() {
+        return getWholeProgramResult().getStaticFields();
+    }
+
+    @Override
+    public Collection<CSObj> getCSObjects() {
+        return getWholeProgramResult().getCSObjects();
+    }
+
+    @Override
+    public Collection<Obj> getObjects() {
+        return getWholeProgramResult().getObjects();
+    }
+
+    @Override
+    public Set<CSObj> getPointsToSet(CSVar var) {
+        return getWholeProgramResult().getPointsToSet(var);
+    }
+
+    @Override
+    public CallGraph<CSCallSite, CSMethod> getCSCallGraph() {
+        return getWholeProgramResult().getCSCallGraph();
+    }
+
+    @Override
+    public CallGraph<Invoke, JMethod> getCallGraph() {
+        return getWholeProgramResult().getCallGraph();
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.demand;
+
+import pascal.taie.analysis.graph.callgraph.CallGraphs;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.InvokeInstanceExp;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Demand-driven, context-insensitive and field-sensitive pointer analysis.
+ * <p>
+ * The solver computes the points-to sets of the demanded pointers on a
+ * lazily built PFG: demanding a pointer adds its incoming edges and
+ * demands their sources. The loads and stores of a field are matched
+ * (in the sense of CFL-reachability) via the points-to sets of their base
+ * variables: demanding {@code o.f} demands the base variable of every
+ * store to {@code f}, and adds the edge from the stored variable only for
+ * the bases that point to {@code o}. Similarly, call edges are resolved
+ * on the fly by the objects of demanded receiver variables. The statements
+ * are handled in the same way as in the whole-program solver.
+ * <p>
+ * When the solver finishes, the points-to sets of all demanded pointers
+ * are complete, and they are reused by later queries.
+ */
+class DemandSolver {
+
+    private final HeapModel heapModel;
+
+    private final ProgramIndex index = new ProgramIndex();
+
+    /**
+     * Points-to sets of pointers. The pointers are variables,
+     * {@link InstanceField}s, {@link ArrayIndex}es and {@link JField}s
+     * (for static fields).
+     */
+    private final Map<Object, Set<Obj>> pointsToSets = Maps.newMap();
+
+    private final MultiMap<Object, Object> successors = Maps.newMultiMap();
+
+    private final MultiMap<Object, Object> predecessors = Maps.newMultiMap();
+
+    private final Set<Object> demanded = Sets.newSet();
+
+    private final Deque<Object> demandList = new ArrayDeque<>();
+
+    private final Deque<Pair<Object, Set<Obj>>> workList = new ArrayDeque<>();
+
+    /**
+     * Map from each variable to the statements which are processed
+     * for its objects, i.e., field/array accesses and calls on it.
+     */
+    private final MultiMap<Var, Stmt> activeStmts = Maps.newMultiMap();
+
+    private final Set<Pair<Invoke, JMethod>> callEdges = Sets.newSet();
+
+    /**
+     * Number of processed work-list entries.
+     */
+    private long steps = 0;
+
+    DemandSolver(HeapModel heapModel) {
+        this.heapModel = heapModel;
+    }
+
+    /**
+     * Instance field pointer.
+     */
+    record InstanceField(Obj base, JField field) {
+    }
+
+    /**
+     * Array index pointer.
+     */
+    record ArrayIndex(Obj array) {
+    }
+
+    long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Computes the points-to set of given pointer within the given number of
+     * steps, including the steps for the unfinished work of previous queries.
+     *
+     * @return the points-to set of the pointer, or null if the budget is
+     * exceeded. In the latter case, the unfinished work is kept for
+     * the next query.
+     */
+    Set<Obj> query(Object pointer, long budget) {
+        demand(pointer);
+        long limit = steps + budget;
+        while (!demandList.isEmpty() || !workList.isEmpty()) {
+            if (steps >= limit) {
+                return null;
+            }
+            if (!demandList.isEmpty()) {
+                processDemand(demandList.poll());
+            } else {
+                Pair<Object, Set<Obj>> entry = workList.poll();
+                ++steps;
+                propagate(entry.first(), entry.second());
+            }
+        }
+        return getPointsToSet(pointer);
+    }
+
+    private Set<Obj> getPointsToSet(Object pointer) {
+        return pointsToSets.computeIfAbsent(pointer, p -> Sets.newHybridSet());
+    }
+
+    private void demand(Object pointer) {
+        if (demanded.add(pointer)) {
+            demandList.add(pointer);
+        }
+    }
+
+    /**
+     * Demands the sources of the incoming edges of given pointer.
+     */
+    private void processDemand(Object pointer) {
+        predecessors.get(pointer).forEach(this::demand);
+        if (pointer instanceof Var var) {
+            demandVar(var);
+        } else if (pointer instanceof InstanceField instanceField) {
+            for (StoreField store : index.getInstanceStoresOf(instanceField.field())) {
+                Var base = ((InstanceFieldAccess) store.getFieldAccess()).getBase();
+                activate(base, store);
+                // the objects which have been processed before the demand
+                if (getPointsToSet(base).contains(instanceField.base())) {
+                    addEdge(store.getRValue(), instanceField);
+                }
+            }
+        } else if (pointer instanceof ArrayIndex arrayIndex) {
+            for (StoreArray store : index.getArrayStores()) {
+                Var base = store.getArrayAccess().getBase();
+                activate(base, store);
+                if (getPointsToSet(base).contains(arrayIndex.array())) {
+                    addEdge(store.getRValue(), arrayIndex);
+                }
+            }
+        } else if (pointer instanceof JField staticField) {
+            for (StoreField store : index.getStaticStoresOf(staticField)) {
+                addEdge(store.getRValue(), staticField);
+            }
+        }
+    }
+
+    private void demandVar(Var var) {
+        for (Stmt def : index.getDefinitionsOf(var)) {
+            if (def instanceof New newStmt) {
+                addObjects(var, Set.of(heapModel.getObj(newStmt)));
+            } else if (def instanceof Copy copy) {
+                addEdge(copy.getRValue(), var);
+            } else if (def instanceof LoadField load) {
+                if (load.isStatic()) {
+                    addEdge(load.getFieldRef().resolve(), var);
+                } else {
+                    activate(((InstanceFieldAccess) load.getFieldAccess()).getBase(), load);
+                }
+            } else if (def instanceof LoadArray load) {
+                activate(load.getArrayAccess().getBase(), load);
+            } else if (def instanceof Invoke invoke) {
+                processCallSite(invoke);
+            }
+        }
+        // objects passed from call sites
+        JMethod method = var.getMethod();
+        IR ir = method.getIR();
+        if (var == ir.getThis() || ir.getParams().contains(var)) {
+            for (Invoke callSite : index.getCallSitesOf(method)) {
+                processCallSite(callSite);
+            }
+        }
+    }
+
+    private void processCallSite(Invoke callSite) {
+        if (callSite.isStatic()) {
+            JMethod callee = CallGraphs.resolveCallee(null, callSite);
+            if (callee != null) {
+                addCallEdge(callSite, callee);
+            }
+        } else if (callSite.getInvokeExp() instanceof InvokeInstanceExp invokeExp) {
+            activate(invokeExp.getBase(), callSite);
+        }
+    }
+
+    /**
+     * Processes given statement on all objects of var, including
+     * the ones which will be added to var.
+     */
+    private void activate(Var var, Stmt stmt) {
+        demand(var);
+        if (activeStmts.put(var, stmt)) {
+            for (Obj obj : Set.copyOf(getPointsToSet(var))) {
+                process(stmt, obj);
+            }
+        }
+    }
+
+    /**
+     * Processes given statement on the object of its base variable.
+     */
+    private void process(Stmt stmt, Obj obj) {
+        if (stmt instanceof LoadField load) {
+            addEdge(new InstanceField(obj, load.getFieldRef().resolve()),
+                    load.getLValue());
+        } else if (stmt instanceof StoreField store) {
+            InstanceField target = new InstanceField(obj, store.getFieldRef().resolve());
+            if (demanded.contains(target)) {
+                addEdge(store.getRValue(), target);
+            }
+        } else if (stmt instanceof LoadArray load) {
+            addEdge(new ArrayIndex(obj), load.getLValue());
+        } else if (stmt instanceof StoreArray store) {
+            ArrayIndex target = new ArrayIndex(obj);
+            if (demanded.contains(target)) {
+                addEdge(store.getRValue(), target);
+            }
+        } else if (stmt instanceof Invoke callSite) {
+            JMethod callee = CallGraphs.resolveCallee(obj.getType(), callSite);
+            if (callee != null) {
+                addObjects(callee.getIR().getThis(), Set.of(obj));
+                addCallEdge(callSite, callee);
+            }
+        }
+    }
+
+    private void addCallEdge(Invoke callSite, JMethod callee) {
+        if (callEdges.add(new Pair<>(callSite, callee))) {
+            IR ir = callee.getIR();
+            List<Var> args = callSite.getInvokeExp().getArgs();
+            for (int i = 0; i < args.size(); ++i) {
+                addEdge(args.get(i), ir.getParam(i));
+            }
+            if (callSite.getLValue() != null) {
+                for (Var ret : ir.getReturnVars()) {
+                    addEdge(ret, callSite.getLValue());
+                }
+            }
+        }
+    }
+
+    private void addEdge(Object source, Object target) {
+        if (successors.put(source, target)) {
+            predecessors.put(target, source);
+            if (demanded.contains(target)) {
+                demand(source);
+            }
+            Set<Obj> pts = getPointsToSet(source);
+            if (!pts.isEmpty()) {
+                addObjects(target, Set.copyOf(pts));
+            }
+        }
+    }
+
+    private void addObjects(Object pointer, Set<Obj> objs) {
+        workList.add(new Pair<>(pointer, objs));
+    }
+
+    private void propagate(Object pointer, Set<Obj> objs) {
+        Set<Obj> pts = getPointsToSet(pointer);
+        Set<Obj> delta = Sets.newHybridSet();
+        for (Obj obj : objs) {
+            if (pts.add(obj)) {
+                delta.add(obj);
+            }
+        }
+        if (delta.isEmpty()) {
+            return;
+        }
+        for (Object succ : successors.get(pointer)) {
+            addObjects(succ, delta);
+        }
+        if (pointer instanceof Var var) {
+            for (Stmt stmt : activeStmts.get(var)) {
+                delta.forEach(obj -> process(stmt, obj));
+            }
+        }
+    }
+}
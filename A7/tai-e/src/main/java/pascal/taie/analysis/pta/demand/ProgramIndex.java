@@ -0,0 +1,183 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.demand;
+
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.CallGraphs;
+import pascal.taie.analysis.graph.callgraph.CallKind;
+import pascal.taie.ir.exp.LValue;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indexes of the statements which are needed to find the incoming edges
+ * of pointers in demand-driven pointer analysis.
+ * <p>
+ * The indexes cover the methods which are reachable from the main method
+ * in the call graph built by class hierarchy analysis (CHA), which is an
+ * over-approximation of the methods reachable in pointer analysis.
+ * They are built on the first use.
+ */
+class ProgramIndex {
+
+    private final ClassHierarchy hierarchy = World.get().getClassHierarchy();
+
+    private boolean built = false;
+
+    /**
+     * Map from each method to the call sites which may call it.
+     */
+    private final MultiMap<JMethod, Invoke> callSites = Maps.newMultiMap();
+
+    /**
+     * Map from each instance field to the statements that store to it.
+     */
+    private final MultiMap<JField, StoreField> instanceStores = Maps.newMultiMap();
+
+    /**
+     * Map from each static field to the statements that store to it.
+     */
+    private final MultiMap<JField, StoreField> staticStores = Maps.newMultiMap();
+
+    private final List<StoreArray> arrayStores = new ArrayList<>();
+
+    /**
+     * Map from each method to the definitions of its variables.
+     */
+    private final Map<JMethod, MultiMap<Var, Stmt>> definitions = Maps.newMap();
+
+    /**
+     * @return the call sites which may call given method.
+     */
+    Set<Invoke> getCallSitesOf(JMethod method) {
+        build();
+        return callSites.get(method);
+    }
+
+    Set<StoreField> getInstanceStoresOf(JField field) {
+        build();
+        return instanceStores.get(field);
+    }
+
+    Set<StoreField> getStaticStoresOf(JField field) {
+        build();
+        return staticStores.get(field);
+    }
+
+    List<StoreArray> getArrayStores() {
+        build();
+        return arrayStores;
+    }
+
+    /**
+     * @return the statements which define given variable.
+     */
+    Set<Stmt> getDefinitionsOf(Var var) {
+        return definitions.computeIfAbsent(var.getMethod(), method -> {
+            MultiMap<Var, Stmt> defs = Maps.newMultiMap();
+            for (Stmt stmt : method.getIR()) {
+                LValue def = stmt.getDef().orElse(null);
+                if (def instanceof Var v) {
+                    defs.put(v, stmt);
+                }
+            }
+            return defs;
+        }).get(var);
+    }
+
+    private void build() {
+        if (built) {
+            return;
+        }
+        built = true;
+        Set<JMethod> reachable = Sets.newSet();
+        Deque<JMethod> workList = new ArrayDeque<>();
+        JMethod main = World.get().getMainMethod();
+        reachable.add(main);
+        workList.add(main);
+        while (!workList.isEmpty()) {
+            JMethod method = workList.poll();
+            for (Stmt stmt : method.getIR()) {
+                if (stmt instanceof Invoke invoke) {
+                    for (JMethod callee : resolveCallees(invoke)) {
+                        callSites.put(callee, invoke);
+                        if (reachable.add(callee)) {
+                            workList.add(callee);
+                        }
+                    }
+                } else if (stmt instanceof StoreField store) {
+                    JField field = store.getFieldRef().resolve();
+                    if (store.isStatic()) {
+                        staticStores.put(field, store);
+                    } else {
+                        instanceStores.put(field, store);
+                    }
+                } else if (stmt instanceof StoreArray store) {
+                    arrayStores.add(store);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the callees of given call site in CHA.
+     */
+    private Set<JMethod> resolveCallees(Invoke callSite) {
+        Set<JMethod> callees = Sets.newHybridSet();
+        CallKind kind = CallGraphs.getCallKind(callSite);
+        if (kind == CallKind.VIRTUAL || kind == CallKind.INTERFACE) {
+            JClass declaringClass = callSite.getMethodRef().getDeclaringClass();
+            for (JClass c : hierarchy.getAllSubclassesOf(declaringClass, true)) {
+                if (!c.isAbstract()) {
+                    JMethod callee = hierarchy.dispatch(c, callSite.getMethodRef());
+                    if (callee != null && !callee.isAbstract()) {
+                        callees.add(callee);
+                    }
+                }
+            }
+        } else if (kind == CallKind.STATIC || kind == CallKind.SPECIAL) {
+            JMethod callee = CallGraphs.resolveCallee(null, callSite);
+            if (callee != null && !callee.isAbstract()) {
+                callees.add(callee);
+            }
+        }
+        return callees;
+    }
+}
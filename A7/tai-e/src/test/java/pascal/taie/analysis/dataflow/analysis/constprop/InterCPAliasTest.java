@@ -31,9 +31,13 @@ public class InterCPAliasTest {
     private static final String CLASS_PATH = "src/test/resources/dataflow/constprop/alias";
 
     void test(String inputClass) {
+        test(inputClass, "cs:2-obj");
+    }
+
+    void test(String inputClass, String ptaOptions) {
         Tests.test(inputClass, CLASS_PATH, InterConstantPropagation.ID,
                 "edge-refine:false;alias-aware:true;pta:cspta",
-                "-a", "cspta=cs:2-obj", "-a", "cg=algorithm:cspta"
+                "-a", "cspta=" + ptaOptions, "-a", "cg=algorithm:cspta"
                 //, "-a", "icfg=dump:true" // <-- uncomment this code if you want
                                            // to output ICFGs for the test cases
         );
@@ -83,4 +87,9 @@ public class InterCPAliasTest {
     public void testStaticFieldMultiStores() {
         test("StaticFieldMultiStores");
     }
+
+    @Test
+    public void testObjSensDemandDriven() {
+        test("ObjSens", "cs:2-obj;demand-driven:true");
+    }
 }
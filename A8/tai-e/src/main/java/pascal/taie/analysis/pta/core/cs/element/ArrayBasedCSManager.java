@@ -0,0 +1,344 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.element;
+
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * {@link CSManager} which finds context-sensitive elements by array
+ * indexing instead of nested hash maps.
+ * <p>
+ * The elements of each method are kept together, and its variables and
+ * call sites are indexed by {@link Var#getIndex()} and
+ * {@link Invoke#getIndex()}. The element of a context is then found by
+ * open addressing on the hash code of the context, which is the ID of
+ * an interned context. The pointers of each context-sensitive object
+ * are indexed by the index of the object.
+ */
+public class ArrayBasedCSManager implements CSManager {
+
+    private final Map<JMethod, MethodElements> methods = Maps.newMap();
+
+    private final Map<Obj, ContextMap<CSObj>> objs = Maps.newMap();
+
+    private final Map<JField, StaticField> staticFields = Maps.newMap();
+
+    /**
+     * Instance fields of the context-sensitive objects, indexed by
+     * {@link CSObj#getIndex()}. Created lazily.
+     */
+    private final List<Map<JField, InstanceField>> objFields = new ArrayList<>();
+
+    /**
+     * Array indexes of the context-sensitive objects, indexed by
+     * {@link CSObj#getIndex()}. Created lazily.
+     */
+    private final List<ArrayIndex> objArrayIndexes = new ArrayList<>();
+
+    private final List<Var> vars = new ArrayList<>();
+
+    private final List<CSVar> csVars = new ArrayList<>();
+
+    private final List<CSObj> csObjs = new ArrayList<>();
+
+    private final List<InstanceField> instanceFields = new ArrayList<>();
+
+    private final List<ArrayIndex> arrayIndexes = new ArrayList<>();
+
+    @Override
+    public CSVar getCSVar(Context context, Var var) {
+        return getMethodElements(var.getMethod())
+                .getVar(var)
+                .computeIfAbsent(context, c -> {
+                    CSVar csVar = initializePointsToSet(new CSVar(var, c));
+                    csVars.add(csVar);
+                    return csVar;
+                });
+    }
+
+    @Override
+    public CSObj getCSObj(Context heapContext, Obj obj) {
+        return objs.computeIfAbsent(obj, o -> new ContextMap<>())
+                .computeIfAbsent(heapContext, c -> {
+                    CSObj csObj = new CSObj(obj, c);
+                    csObj.setIndex(csObjs.size());
+                    csObjs.add(csObj);
+                    objFields.add(null);
+                    objArrayIndexes.add(null);
+                    return csObj;
+                });
+    }
+
+    @Override
+    public CSCallSite getCSCallSite(Context context, Invoke callSite) {
+        return getMethodElements(callSite.getContainer())
+                .getCallSite(callSite)
+                .computeIfAbsent(context, c -> new CSCallSite(callSite, c));
+    }
+
+    @Override
+    public CSMethod getCSMethod(Context context, JMethod method) {
+        return getMethodElements(method).csMethods
+                .computeIfAbsent(context, c -> new CSMethod(method, c));
+    }
+
+    @Override
+    public StaticField getStaticField(JField field) {
+        return staticFields.computeIfAbsent(field,
+                f -> initializePointsToSet(new StaticField(f)));
+    }
+
+    @Override
+    public InstanceField getInstanceField(CSObj base, JField field) {
+        int index = indexOf(base);
+        Map<JField, InstanceField> fields = objFields.get(index);
+        if (fields == null) {
+            fields = Maps.newHybridMap();
+            objFields.set(index, fields);
+        }
+        return fields.computeIfAbsent(field, f -> {
+            InstanceField instanceField = initializePointsToSet(
+                    new InstanceField(base, f));
+            instanceFields.add(instanceField);
+            return instanceField;
+        });
+    }
+
+    @Override
+    public ArrayIndex getArrayIndex(CSObj array) {
+        int index = indexOf(array);
+        ArrayIndex arrayIndex = objArrayIndexes.get(index);
+        if (arrayIndex == null) {
+            arrayIndex = initializePointsToSet(new ArrayIndex(array));
+            objArrayIndexes.set(index, arrayIndex);
+            arrayIndexes.add(arrayIndex);
+        }
+        return arrayIndex;
+    }
+
+    /**
+     * @return the index of given object, which must be managed by this manager.
+     */
+    private int indexOf(CSObj csObj) {
+        int index = csObj.getIndex();
+        if (index < 0 || index >= csObjs.size() || csObjs.get(index) != csObj) {
+            throw new IllegalArgumentException(csObj + " is not managed by this manager");
+        }
+        return index;
+    }
+
+    /**
+     * Initializes the points-to set of a newly created pointer.
+     */
+    protected <P extends Pointer> P initializePointsToSet(P pointer) {
+        pointer.setPointsToSet(PointsToSetFactory.make());
+        return pointer;
+    }
+
+    @Override
+    public Collection<Var> getVars() {
+        return Collections.unmodifiableList(vars);
+    }
+
+    @Override
+    public Collection<CSVar> getCSVarsOf(Var var) {
+        MethodElements elems = methods.get(var.getMethod());
+        return elems != null ? elems.getVarIfPresent(var).values() : List.of();
+    }
+
+    @Override
+    public Collection<CSVar> getCSVars() {
+        return Collections.unmodifiableList(csVars);
+    }
+
+    @Override
+    public Collection<CSObj> getObjects() {
+        return Collections.unmodifiableList(csObjs);
+    }
+
+    @Override
+    public Collection<StaticField> getStaticFields() {
+        return Collections.unmodifiableCollection(staticFields.values());
+    }
+
+    @Override
+    public Collection<InstanceField> getInstanceFields() {
+        return Collections.unmodifiableList(instanceFields);
+    }
+
+    @Override
+    public Collection<ArrayIndex> getArrayIndexes() {
+        return Collections.unmodifiableList(arrayIndexes);
+    }
+
+    private MethodElements getMethodElements(JMethod method) {
+        return methods.computeIfAbsent(method, m -> new MethodElements());
+    }
+
+    /**
+     * Context-sensitive elements of a method.
+     */
+    private class MethodElements {
+
+        private final ContextMap<CSMethod> csMethods = new ContextMap<>();
+
+        /**
+         * Context-sensitive variables, indexed by {@link Var#getIndex()}.
+         */
+        private ContextMap<CSVar>[] csVars = ContextMap.newArray(0);
+
+        /**
+         * Context-sensitive call sites, indexed by {@link Invoke#getIndex()}.
+         */
+        private ContextMap<CSCallSite>[] csCallSites = ContextMap.newArray(0);
+
+        private ContextMap<CSVar> getVar(Var var) {
+            int i = var.getIndex();
+            if (i >= csVars.length) {
+                csVars = Arrays.copyOf(csVars, Math.max(i + 1, csVars.length * 2));
+            }
+            if (csVars[i] == null) {
+                csVars[i] = new ContextMap<>();
+                vars.add(var);
+            }
+            return csVars[i];
+        }
+
+        private ContextMap<CSVar> getVarIfPresent(Var var) {
+            int i = var.getIndex();
+            return i < csVars.length && csVars[i] != null
+                    ? csVars[i] : ContextMap.empty();
+        }
+
+        private ContextMap<CSCallSite> getCallSite(Invoke callSite) {
+            int i = callSite.getIndex();
+            if (i >= csCallSites.length) {
+                csCallSites = Arrays.copyOf(csCallSites,
+                        Math.max(i + 1, csCallSites.length * 2));
+            }
+            if (csCallSites[i] == null) {
+                csCallSites[i] = new ContextMap<>();
+            }
+            return csCallSites[i];
+        }
+    }
+
+    /**
+     * Map from contexts to the elements of an abstraction, by open
+     * addressing on the hash codes of contexts, i.e., the IDs of
+     * interned contexts. Most abstractions are used in very few contexts,
+     * thus the table starts small.
+     */
+    private static class ContextMap<E> {
+
+        private static final ContextMap<?> EMPTY = new ContextMap<>();
+
+        private Context[] keys = new Context[2];
+
+        private Object[] values = new Object[2];
+
+        private int size = 0;
+
+        @SuppressWarnings("unchecked")
+        private static <E> ContextMap<E> empty() {
+            return (ContextMap<E>) EMPTY;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <E> ContextMap<E>[] newArray(int length) {
+            return new ContextMap[length];
+        }
+
+        @SuppressWarnings("unchecked")
+        private E computeIfAbsent(Context context, Function<Context, E> factory) {
+            int i = find(keys, context);
+            if (keys[i] != null) {
+                return (E) values[i];
+            }
+            E value = factory.apply(context);
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize();
+                i = find(keys, context);
+            }
+            keys[i] = context;
+            values[i] = value;
+            ++size;
+            return value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<E> values() {
+            List<E> result = new ArrayList<>(size);
+            for (Object value : values) {
+                if (value != null) {
+                    result.add((E) value);
+                }
+            }
+            return result;
+        }
+
+        private void resize() {
+            Context[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new Context[oldKeys.length * 2];
+            values = new Object[oldKeys.length * 2];
+            for (int j = 0; j < oldKeys.length; ++j) {
+                if (oldKeys[j] != null) {
+                    int i = find(keys, oldKeys[j]);
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        /**
+         * @return the slot of given context in keys, or the empty slot
+         * where it should be inserted.
+         */
+        private static int find(Context[] keys, Context context) {
+            int mask = keys.length - 1;
+            int h = context.hashCode() * 0x9E3779B9;
+            int i = (h ^ (h >>> 16)) & mask;
+            while (keys[i] != null && keys[i] != context
+                    && !keys[i].equals(context)) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+    }
+}
@@ -32,6 +32,12 @@ public class CSObj extends AbstractCSElement {
 
     private final Obj obj;
 
+    /**
+     * Index of this object in the {@link CSManager} that creates it,
+     * or -1 if the manager does not index the objects.
+     */
+    private int index = -1;
+
     CSObj(Obj obj, Context context) {
         super(context);
         this.obj = obj;
@@ -44,6 +50,14 @@ public class CSObj extends AbstractCSElement {
         return obj;
     }
 
+    int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
     @Override
     public String toString() {
         return context + ":" + obj;
@@ -26,15 +26,15 @@ import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.core.cs.selector.CISelector;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
+import pascal.taie.analysis.pta.core.cs.selector.KLimitedSelector;
 import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
 import pascal.taie.analysis.pta.plugin.ResultProcessor;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.config.AnalysisOptions;
 import pascal.taie.config.ConfigException;
-import pascal.taie.util.Strings;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Context-sensitive pointer analysis.
@@ -43,6 +43,16 @@ public class CSPTA extends ProgramAnalysis {
 
     public static final String ID = "cspta";
 
+    /**
+     * Pattern of k-limited context sensitivity variants, i.e., k-kind
+     * where k is limit of context length and kind represents kind of
+     * context element (call, obj or type), optionally followed by +hkh
+     * where hk is limit of heap context length (k - 1 by default),
+     * e.g., 2-obj and 3-obj+2h.
+     */
+    private static final Pattern K_LIMITED = Pattern.compile(
+            "(\\d+)-(call|obj|type)(\\+(\\d+)h)?");
+
     public CSPTA(AnalysisConfig config) {
         super(config);
     }
@@ -62,26 +72,16 @@ public class CSPTA extends ProgramAnalysis {
     private static ContextSelector getContextSelector(String cs) {
         if (cs.equals("ci")) {
             return new CISelector();
-        } else {
-            try {
-                // we expect that the argument of context-sensitivity variant
-                // is of pattern k-kind, where k is limit of context length
-                // and kind represents kind of context element (obj, type, etc.).
-                String[] splits = cs.split("-");
-                String k = splits[0];
-                String kind = Strings.capitalize(splits[1]);
-                String selectorName = "pascal.taie.analysis.pta.core.cs.selector." +
-                        "_" + k + kind + "Selector";
-                Class<?> c = Class.forName(selectorName);
-                Constructor<?> ctor = c.getConstructor();
-                return (ContextSelector) ctor.newInstance();
-            } catch (RuntimeException e) {
-                throw new ConfigException("Unexpected context-sensitivity variants: " + cs, e);
-            } catch (ClassNotFoundException | NoSuchMethodException |
-                    InvocationTargetException | InstantiationException |
-                    IllegalAccessException e) {
-                throw new ConfigException("Failed to initialize context selector: " + cs, e);
-            }
         }
+        Matcher matcher = K_LIMITED.matcher(cs);
+        if (!matcher.matches()) {
+            throw new ConfigException("Unexpected context-sensitivity variants: " + cs);
+        }
+        int k = Integer.parseInt(matcher.group(1));
+        KLimitedSelector.Kind kind = KLimitedSelector.Kind.valueOf(
+                matcher.group(2).toUpperCase());
+        int hk = matcher.group(4) != null
+                ? Integer.parseInt(matcher.group(4)) : Math.max(0, k - 1);
+        return new KLimitedSelector(kind, k, hk);
     }
 }
@@ -31,27 +31,31 @@ import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.PointerAnalysisResultImpl;
 import pascal.taie.analysis.pta.core.cs.CSCallGraph;
 import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.element.ArrayBasedCSManager;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSManager;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
 import pascal.taie.analysis.pta.core.cs.element.CSVar;
-import pascal.taie.analysis.pta.core.cs.element.MapBasedCSManager;
 import pascal.taie.analysis.pta.core.cs.element.Pointer;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
 import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.plugin.ResultProcessor;
 import pascal.taie.analysis.pta.plugin.taint.TaintAnalysiss;
 import pascal.taie.analysis.pta.pts.PointsToSet;
 import pascal.taie.analysis.pta.pts.PointsToSetFactory;
 import pascal.taie.config.AnalysisOptions;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.*;
+import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.PrimitiveType;
 import pascal.taie.language.type.Type;
 import pascal.taie.util.collection.Pair;
 
 import java.util.*;
+import java.util.function.Function;
 
 public class Solver {
 
@@ -77,11 +81,28 @@ public class Solver {
 
     private Map<CSVar, List<Pair<Integer, Invoke>>> argToCallSiteMap;
 
+    /**
+     * Whether pointers of primitive types are not created at all,
+     * as they never point to any object.
+     */
+    private final boolean prunePrimitives;
+
+    /**
+     * Pruned variable pointers, recorded for statistics.
+     */
+    private final Set<Pair<Context, Var>> prunedVars = new HashSet<>();
+
+    /**
+     * Pruned static field pointers, recorded for statistics.
+     */
+    private final Set<JField> prunedStaticFields = new HashSet<>();
+
     Solver(AnalysisOptions options, HeapModel heapModel,
            ContextSelector contextSelector) {
         this.options = options;
         this.heapModel = heapModel;
         this.contextSelector = contextSelector;
+        this.prunePrimitives = options.getBooleanOrDefault("prune-primitives", false);
     }
 
     public AnalysisOptions getOptions() {
@@ -103,7 +124,7 @@ public class Solver {
     }
 
     private void initialize() {
-        csManager = new MapBasedCSManager();
+        csManager = new ArrayBasedCSManager();
         callGraph = new CSCallGraph(csManager);
         pointerFlowGraph = new PointerFlowGraph();
         workList = new WorkList();
@@ -157,6 +178,9 @@ public class Solver {
 
         @Override
         public Void visit(Copy stmt) {
+            if (isPruned(context, stmt.getRValue(), context, stmt.getLValue())) {
+                return StmtVisitor.super.visit(stmt);
+            }
             addPFGEdge(
                     csManager.getCSVar(context, stmt.getRValue()),
                     csManager.getCSVar(context, stmt.getLValue())
@@ -167,10 +191,13 @@ public class Solver {
         @Override
         public Void visit(StoreField stmt) {
             if (stmt.isStatic()) {
-                addPFGEdge(
-                        csManager.getCSVar(context, stmt.getRValue()),
-                        csManager.getStaticField(stmt.getLValue().getFieldRef().resolve())
-                );
+                JField field = stmt.getFieldRef().resolve();
+                if (!isPruned(context, stmt.getRValue(), field)) {
+                    addPFGEdge(
+                            csManager.getCSVar(context, stmt.getRValue()),
+                            csManager.getStaticField(field)
+                    );
+                }
             }
             return StmtVisitor.super.visit(stmt);
         }
@@ -178,10 +205,13 @@ public class Solver {
         @Override
         public Void visit(LoadField stmt) {
             if (stmt.isStatic()) {
-                addPFGEdge(
-                        csManager.getStaticField(stmt.getRValue().getFieldRef().resolve()),
-                        csManager.getCSVar(context, stmt.getLValue())
-                );
+                JField field = stmt.getFieldRef().resolve();
+                if (!isPruned(context, stmt.getLValue(), field)) {
+                    addPFGEdge(
+                            csManager.getStaticField(field),
+                            csManager.getCSVar(context, stmt.getLValue())
+                    );
+                }
             }
             return StmtVisitor.super.visit(stmt);
         }
@@ -199,15 +229,21 @@ public class Solver {
                 if (callGraph.addEdge(new Edge<>(CallGraphs.getCallKind(stmt), csStmt, csMethod))) {
                     addReachable(csMethod);
                     for (int i = 0; i < stmt.getRValue().getArgCount(); i ++) {
+                        Var arg = stmt.getRValue().getArg(i);
+                        Var param = method.getIR().getParam(i);
+                        if (isPruned(c, arg, ct, param)) {
+                            continue;
+                        }
                         // addEdge(ai, pi)
                         addPFGEdge(
-                                csManager.getCSVar(c, stmt.getRValue().getArgs().get(i)),
-                                csManager.getCSVar(ct, method.getIR().getParams().get(i))
+                                csManager.getCSVar(c, arg),
+                                csManager.getCSVar(ct, param)
                         );
                     }
                     for (Var ret: method.getIR().getReturnVars()) {
                         // addEdge(ret, r)
-                        if (stmt.getLValue() != null)
+                        if (stmt.getLValue() != null
+                                && !isPruned(ct, ret, c, stmt.getLValue()))
                             addPFGEdge(
                                     csManager.getCSVar(ct, ret),
                                     csManager.getCSVar(c, stmt.getLValue())
@@ -227,6 +263,9 @@ public class Solver {
             // record map from arguments to call site
             for (int i = 0; i < stmt.getRValue().getArgCount(); i ++) {
                 Var arg = stmt.getRValue().getArg(i);
+                if (isPruned(c, arg)) {
+                    continue;
+                }
                 CSVar csArg = csManager.getCSVar(c, arg);
                 List<Pair<Integer, Invoke>> list = argToCallSiteMap.getOrDefault(csArg, new ArrayList<>());
                 list.add(new Pair<>(i, stmt));
@@ -249,6 +288,25 @@ public class Solver {
         }
     }
 
+    /**
+     * Adds edges "source(o) -> target" to the PFG for each object o in objs,
+     * and propagates the objects of all new sources to target in one entry.
+     */
+    private void addPFGEdges(PointsToSet objs,
+                             Function<CSObj, ? extends Pointer> source,
+                             Pointer target) {
+        PointsToSet pointsToSet = PointsToSetFactory.make();
+        for (CSObj obj: objs) {
+            Pointer s = source.apply(obj);
+            if (pointerFlowGraph.addEdge(s, target)) {
+                pointsToSet.addAll(s.getPointsToSet());
+            }
+        }
+        if (!pointsToSet.isEmpty()) {
+            workList.addEntry(target, pointsToSet);
+        }
+    }
+
     /**
      * Processes work-list entries until the work-list is empty.
      */
@@ -262,44 +320,55 @@ public class Solver {
             if (ptr instanceof CSVar) {
                 Var var = ((CSVar) ptr).getVar();
                 Context c = ((CSVar) ptr).getContext();
-                for (CSObj obj: deltaSet) {
-
-                    // x.f = y
-                    for (StoreField storeField: var.getStoreFields()) {
-                        // addEdge(y, o.f)
-                        addPFGEdge(
-                                csManager.getCSVar(c, storeField.getRValue()),
-                                csManager.getInstanceField(obj, storeField.getLValue().getFieldRef().resolve())
-                        );
+                // x.f = y
+                for (StoreField storeField: var.getStoreFields()) {
+                    JField field = storeField.getFieldRef().resolve();
+                    if (isPruned(c, storeField.getRValue(), field)) {
+                        continue;
+                    }
+                    // addEdge(y, o.f)
+                    CSVar from = csManager.getCSVar(c, storeField.getRValue());
+                    for (CSObj obj: deltaSet) {
+                        addPFGEdge(from, csManager.getInstanceField(obj, field));
                     }
+                }
 
-                    // y = x.f
-                    for (LoadField loadField: var.getLoadFields()) {
-                        // addEdge(o.f, y)
-                        addPFGEdge(
-                                csManager.getInstanceField(obj, loadField.getRValue().getFieldRef().resolve()),
-                                csManager.getCSVar(c, loadField.getLValue())
-                        );
+                // y = x.f
+                for (LoadField loadField: var.getLoadFields()) {
+                    JField field = loadField.getFieldRef().resolve();
+                    if (isPruned(c, loadField.getLValue(), field)) {
+                        continue;
                     }
+                    // addEdge(o.f, y)
+                    addPFGEdges(deltaSet, obj -> csManager.getInstanceField(obj, field),
+                            csManager.getCSVar(c, loadField.getLValue()));
+                }
 
-                    // x[i] = y
-                    for (StoreArray storeArray: var.getStoreArrays()) {
-                        // addEdge(y, o.arr)
-                        addPFGEdge(
-                                csManager.getCSVar(c, storeArray.getRValue()),
-                                csManager.getArrayIndex(obj)
-                        );
+                // x[i] = y
+                for (StoreArray storeArray: var.getStoreArrays()) {
+                    if (isPruned(c, storeArray.getRValue(),
+                            storeArray.getArrayAccess().getType())) {
+                        continue;
                     }
+                    // addEdge(y, o.arr)
+                    CSVar from = csManager.getCSVar(c, storeArray.getRValue());
+                    for (CSObj obj: deltaSet) {
+                        addPFGEdge(from, csManager.getArrayIndex(obj));
+                    }
+                }
 
-                    // y = x[i]
-                    for (LoadArray loadArray: var.getLoadArrays()) {
-                        // addEdge(o.arr, y)
-                        addPFGEdge(
-                                csManager.getArrayIndex(obj),
-                                csManager.getCSVar(c, loadArray.getLValue())
-                        );
+                // y = x[i]
+                for (LoadArray loadArray: var.getLoadArrays()) {
+                    if (isPruned(c, loadArray.getLValue(),
+                            loadArray.getArrayAccess().getType())) {
+                        continue;
                     }
+                    // addEdge(o.arr, y)
+                    addPFGEdges(deltaSet, csManager::getArrayIndex,
+                            csManager.getCSVar(c, loadArray.getLValue()));
+                }
 
+                for (CSObj obj: deltaSet) {
                     processCall((CSVar) ptr, obj);
                 }
             }
@@ -352,15 +421,21 @@ public class Solver {
             if (callGraph.addEdge(new Edge<>(CallGraphs.getCallKind(callSite), csCallSite, csMethod))) {
                 addReachable(csMethod);
                 for (int i = 0; i < callSite.getRValue().getArgCount(); i++) {
+                    Var arg = callSite.getRValue().getArg(i);
+                    Var param = method.getIR().getParam(i);
+                    if (isPruned(c, arg, ct, param)) {
+                        continue;
+                    }
                     // addEdge(ai, pi)
                     addPFGEdge(
-                            csManager.getCSVar(c, callSite.getRValue().getArgs().get(i)),
-                            csManager.getCSVar(ct, method.getIR().getParams().get(i))
+                            csManager.getCSVar(c, arg),
+                            csManager.getCSVar(ct, param)
                     );
                 }
                 for (Var ret : method.getIR().getReturnVars()) {
                     // addEdge(ret, r)
-                    if (callSite.getLValue() != null)
+                    if (callSite.getLValue() != null
+                            && !isPruned(ct, ret, c, callSite.getLValue()))
                         addPFGEdge(
                                 csManager.getCSVar(ct, ret),
                                 csManager.getCSVar(c, callSite.getLValue())
@@ -388,6 +463,8 @@ public class Solver {
     public PointerAnalysisResult getResult() {
         if (result == null) {
             result = new PointerAnalysisResultImpl(csManager, callGraph);
+            result.storeResult(ResultProcessor.PRUNED_POINTERS,
+                    prunedVars.size() + prunedStaticFields.size());
         }
         return result;
     }
@@ -407,4 +484,74 @@ public class Solver {
     public Map<CSVar, List<Pair<Integer, Invoke>>> getArgToCallSiteMap() {
         return argToCallSiteMap;
     }
+
+    /**
+     * @return whether the pointers of given variable are pruned, i.e.,
+     * primitive pointers are pruned and the variable is primitive.
+     * This is public as taint analysis must not create the pointers
+     * of pruned sink arguments.
+     */
+    public boolean isPruned(Var var) {
+        return isPruned(var.getType());
+    }
+
+    private boolean isPruned(Type type) {
+        return prunePrimitives && type instanceof PrimitiveType;
+    }
+
+    /**
+     * @return whether the pointer of given variable in given context is
+     * pruned. The pruned pointer is recorded for statistics.
+     */
+    private boolean isPruned(Context context, Var var) {
+        if (isPruned(var)) {
+            prunedVars.add(new Pair<>(context, var));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the flow from source to target is pruned, i.e.,
+     * the pointers of both variables are pruned. The pruned pointers
+     * are recorded for statistics.
+     */
+    private boolean isPruned(Context sourceContext, Var source,
+                             Context targetContext, Var target) {
+        if (isPruned(source) && isPruned(target)) {
+            prunedVars.add(new Pair<>(sourceContext, source));
+            prunedVars.add(new Pair<>(targetContext, target));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the flow between given variable and a static field
+     * or an instance field is pruned, i.e., the pointers of both the
+     * variable and the field are pruned. The pruned pointers are recorded
+     * for statistics.
+     */
+    private boolean isPruned(Context context, Var var, JField field) {
+        if (isPruned(context, var, field.getType())) {
+            if (field.isStatic()) {
+                prunedStaticFields.add(field);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the flow between given variable and a field or
+     * an array index of given type is pruned, i.e., the pointers of both
+     * are pruned. The pruned variable pointer is recorded for statistics.
+     */
+    private boolean isPruned(Context context, Var var, Type type) {
+        if (isPruned(var) && isPruned(type)) {
+            prunedVars.add(new Pair<>(context, var));
+            return true;
+        }
+        return false;
+    }
 }
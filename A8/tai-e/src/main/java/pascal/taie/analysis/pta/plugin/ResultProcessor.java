@@ -70,6 +70,11 @@ public class ResultProcessor {
      */
     private static final String SEP = " -> ";
 
+    /**
+     * Key of the number of pruned primitive pointers in the result.
+     */
+    public static final String PRUNED_POINTERS = "pruned-pointers";
+
     private static final DecimalFormat formatter = new DecimalFormat("#,####");
 
     public static void process(AnalysisOptions options,
@@ -125,6 +130,11 @@ public class ResultProcessor {
                 format(reachableInsens), format(reachableSens));
         System.out.printf("%-30s%s (insens) / %s (sens)%n", "#call graph edges:",
                 format(callEdgeInsens), format(callEdgeSens));
+        if (result.getKeys().contains(PRUNED_POINTERS)) {
+            int pruned = result.getResult(PRUNED_POINTERS);
+            System.out.printf("%-30s%s (sens)%n", "#pruned primitive pointers:",
+                    format(pruned));
+        }
         System.out.println("----------------------------------------");
     }
 
@@ -94,6 +94,9 @@ public class TaintAnalysiss {
         if (!indexes.isEmpty()) {
             for (Integer index: indexes) {
                 Var var = callSite.getRValue().getArg(index);
+                if (solver.isPruned(var)) {
+                    continue;
+                }
                 CSVar csVar = csManager.getCSVar(csCallSite.getContext(), var);
                 for (CSObj csObj: PTAResult.getPointsToSet(csVar)) {
                     Obj obj = csObj.getObject();
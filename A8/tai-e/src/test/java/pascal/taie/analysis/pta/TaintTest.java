@@ -65,6 +65,12 @@ public class TaintTest {
                 "cs:2-call;taint-config:src/test/resources/pta/taint/taint-config.yml");
     }
 
+    @Test
+    public void testInterTaintTransferPrunePrimitives() {
+        Tests.testCSPTA(DIR, "InterTaintTransfer",
+                "cs:2-call;prune-primitives:true;taint-config:src/test/resources/pta/taint/taint-config.yml");
+    }
+
     @Test
     public void testTaintInList() {
         Tests.testCSPTA(DIR, "TaintInList",